@@ -0,0 +1,84 @@
+package com.bus.bus_service.service;
+
+import com.bus.bus_service.entities.RouteEntity;
+import com.bus.bus_service.seed.NetworkGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the in-memory filter, sort and slice paths of the RouteService on generated route networks.
+ * filterRoutes changes the bus lists of the given routes, so every invocation works on fresh copies and
+ * copyRoutes measures the cost of copying alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    private int routes;
+
+    @Param({"3"})
+    private int busesPerRoute;
+
+    @Param({"price", "speed"})
+    private String criteria;
+
+    private RouteService routeService;
+    private List<RouteEntity> network;
+
+    @Setup
+    public void setUp() {
+        // the repositories are not used by the in-memory paths
+        routeService = new RouteService(null, null, null, false);
+        network = NetworkGenerator.generate(new NetworkGenerator.Settings(42, routes / 5 + 1, routes,
+            Math.max(busesPerRoute, routes / 10), busesPerRoute, busesPerRoute, NetworkGenerator.Distribution.POWER_LAW,
+            1.0, 1f, 5f, 20f, 100f)).routes();
+    }
+
+    @Benchmark
+    public List<RouteEntity> copyRoutes() {
+        return copy(network);
+    }
+
+    @Benchmark
+    public List<RouteEntity> filterRoutes() {
+        return routeService.filterRoutes(criteria, copy(network));
+    }
+
+    @Benchmark
+    public List<RouteEntity> sortRoutes() {
+        return routeService.sortRoutes(criteria, network);
+    }
+
+    @Benchmark
+    public List<RouteEntity> sliceRoutes() {
+        return routeService.sliceRoutes(network);
+    }
+
+    private static List<RouteEntity> copy(List<RouteEntity> routes) {
+        List<RouteEntity> copies = new ArrayList<>(routes.size());
+        for (RouteEntity route : routes) {
+            RouteEntity copy = new RouteEntity(route.getStart(), route.getDestination(), route.getBuses());
+            copy.setRouteId(route.getRouteId());
+            copies.add(copy);
+        }
+        return copies;
+    }
+}
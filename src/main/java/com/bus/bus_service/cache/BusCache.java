@@ -0,0 +1,122 @@
+package com.bus.bus_service.cache;
+
+import com.bus.bus_service.dto.Bus;
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.repository.BusRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-through cache of the buses by busNumber and by busId. The buses are kept as immutable DTOs and every lookup
+ * returns new detached entities, missing buses are not cached. The hit and miss counts are exported as
+ * "cache.gets" with the caches "buses.by-number" and "buses.by-id".
+ */
+@Component
+public class BusCache implements MeterBinder {
+
+    private final BusRepository busRepository;
+    private final Cache<Integer, Bus> byNumber;
+    private final Cache<Long, Bus> byId;
+
+    public BusCache(BusRepository busRepository,
+                    @Value("${bus.cache.maximum-size:10000}") long maximumSize,
+                    @Value("${bus.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.busRepository = busRepository;
+        this.byNumber = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite)
+            .recordStats().build();
+        this.byId = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(expireAfterWrite)
+            .recordStats().build();
+    }
+
+    public Optional<BusEntity> getByNumber(Integer busNumber) {
+        return Optional.ofNullable(byNumber.get(busNumber,
+                number -> busRepository.findBusEntityByBusNumber(number).map(BusCache::toBus).orElse(null)))
+            .map(BusCache::toEntity);
+    }
+
+    public Optional<BusEntity> getById(Long busId) {
+        return Optional.ofNullable(byId.get(busId,
+                id -> busRepository.findById(id).map(BusCache::toBus).orElse(null)))
+            .map(BusCache::toEntity);
+    }
+
+    /**
+     * Returns the existing buses of the given bus numbers, the buses missing in the cache are loaded with one query
+     */
+    public Map<Integer, BusEntity> getAllByNumber(Collection<Integer> busNumbers) {
+        Map<Integer, BusEntity> buses = new HashMap<>();
+        byNumber.getAll(busNumbers, missingNumbers -> {
+            Map<Integer, Bus> loaded = new HashMap<>();
+            busRepository.findAllByBusNumberIn(List.copyOf(missingNumbers))
+                .forEach(bus -> loaded.put(bus.getBusNumber(), toBus(bus)));
+            return loaded;
+        }).forEach((busNumber, bus) -> buses.put(busNumber, toEntity(bus)));
+        return buses;
+    }
+
+    /**
+     * Removes the entries of a changed bus. Inside a transaction the entries are removed again after its completion,
+     * so an entry loaded by another thread while the transaction was running is not kept.
+     * @param busNumbers The old and the new bus number of the bus
+     */
+    public void evict(Long busId, Integer... busNumbers) {
+        invalidate(busId, busNumbers);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(busId, busNumbers);
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes all entries, needed after buses were changed without the BusService
+     */
+    public void evictAll() {
+        byNumber.invalidateAll();
+        byId.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byNumber, "buses.by-number");
+        CaffeineCacheMetrics.monitor(registry, byId, "buses.by-id");
+    }
+
+    private void invalidate(Long busId, Integer... busNumbers) {
+        if (busId != null) {
+            byId.invalidate(busId);
+        }
+        for (Integer busNumber : busNumbers) {
+            if (busNumber != null) {
+                byNumber.invalidate(busNumber);
+            }
+        }
+    }
+
+    private static Bus toBus(BusEntity bus) {
+        return new Bus(bus.getBusId(), bus.getBusNumber(), bus.getName(), bus.getKmPrice(), bus.getAverageSpeed());
+    }
+
+    private static BusEntity toEntity(Bus bus) {
+        BusEntity busEntity = new BusEntity(bus.busNumber(), bus.name(), bus.kmPrice(), bus.averageSpeed());
+        busEntity.setBusId(bus.busId());
+        return busEntity;
+    }
+}
@@ -0,0 +1,161 @@
+package com.bus.bus_service.cache;
+
+import com.bus.bus_service.events.NetworkVersion;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the encoded bodies of the bus and route GET responses per URL and network version and adds a strong ETag.
+ * A cached response is written as bytes, or answered with 304 if the ETag matches "If-None-Match", without calling
+ * the controllers. Every route or bus change starts a new network version, so older responses are never returned.
+ * The hit and miss counts are exported as "cache.gets" with the cache "responses".
+ */
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final List<String> CACHED_PATHS = List.of("/api/v1/bus", "/api/v1/route");
+    // streamed asynchronously and possibly very large
+    private static final String EXPORT_PATH = "/api/v1/route/export";
+
+    record ResponseKey(long version, String url) { }
+
+    /**
+     * @param pattern The path pattern of the handler, so the request metrics of a cache hit are tagged like a miss
+     */
+    record CachedResponse(byte[] body, String etag, Map<String, List<String>> headers, String pattern) { }
+
+    private final NetworkVersion networkVersion;
+    private final Cache<ResponseKey, CachedResponse> responses;
+    private volatile long purgedVersion;
+
+    /**
+     * @param maximumBytes The maximum size of all cached response bodies
+     */
+    public ResponseCacheFilter(NetworkVersion networkVersion,
+                               @Value("${response.cache.maximum-bytes:67108864}") long maximumBytes) {
+        this.networkVersion = networkVersion;
+        this.responses = Caffeine.newBuilder()
+            .maximumWeight(maximumBytes)
+            .weigher((ResponseKey key, CachedResponse response) -> response.body().length + key.url().length())
+            .recordStats()
+            .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !HttpMethod.GET.matches(request.getMethod()) || path.startsWith(EXPORT_PATH)
+            || CACHED_PATHS.stream().noneMatch(path::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        long version = networkVersion.current();
+        if (version != purgedVersion) {
+            // the responses of older versions can not be hit anymore
+            purgedVersion = version;
+            responses.asMap().keySet().removeIf(key -> key.version() < version);
+        }
+        String query = request.getQueryString();
+        ResponseKey key = new ResponseKey(version, query == null ? request.getRequestURI()
+            : request.getRequestURI() + "?" + query);
+
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached == null) {
+            ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+            filterChain.doFilter(request, responseWrapper);
+            if (responseWrapper.getStatus() != HttpServletResponse.SC_OK) {
+                responseWrapper.copyBodyToResponse();
+                return;
+            }
+            cached = toCachedResponse(request, responseWrapper);
+            responses.put(key, cached);
+            // the headers are already set, only the body is written again
+            responseWrapper.resetBuffer();
+            writeBody(request, response, cached);
+            return;
+        }
+        if (cached.pattern() != null) {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, cached.pattern());
+            String pattern = cached.pattern();
+            ServerHttpObservationFilter.findObservationContext(request)
+                .ifPresent(context -> context.setPathPattern(pattern));
+        }
+        cached.headers().forEach((name, values) -> {
+            response.setHeader(name, values.getFirst());
+            values.stream().skip(1).forEach(value -> response.addHeader(name, value));
+        });
+        writeBody(request, response, cached);
+    }
+
+    public void evictAll() {
+        responses.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, responses, "responses");
+    }
+
+    private static CachedResponse toCachedResponse(HttpServletRequest request,
+                                                   ContentCachingResponseWrapper responseWrapper) {
+        byte[] body = responseWrapper.getContentAsByteArray();
+        String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        responseWrapper.setHeader(HttpHeaders.ETAG, etag);
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : responseWrapper.getHeaderNames()) {
+            headers.put(name, List.copyOf(responseWrapper.getHeaders(name)));
+        }
+        if (responseWrapper.getContentType() != null) {
+            headers.put(HttpHeaders.CONTENT_TYPE, List.of(responseWrapper.getContentType()));
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return new CachedResponse(body, etag, headers, pattern == null ? null : pattern.toString());
+    }
+
+    private static void writeBody(HttpServletRequest request, HttpServletResponse response, CachedResponse cached)
+        throws IOException {
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), cached.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentLength(cached.body().length);
+        response.getOutputStream().write(cached.body());
+    }
+
+    // If-None-Match uses the weak comparison, so a weak variant of the ETag matches as well
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,124 @@
+package com.bus.bus_service.cache;
+
+import com.bus.bus_service.dto.Route;
+import com.bus.bus_service.events.NetworkVersion;
+import com.bus.bus_service.service.RouteService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Read-through cache of the route GET queries in front of the RouteService, so a hit neither opens a transaction nor
+ * takes a connection. The results are cached per network version: every route or bus change starts a new version,
+ * so results of an older version are never returned. The hit and miss counts are exported as "cache.gets" with the
+ * cache "routes".
+ * Concurrent misses of the same query are coalesced, so a burst of requests for a popular station runs the query
+ * only once. The executed and coalesced loads are exported as "cache.loads" with the tag "result".
+ */
+@Component
+public class RouteQueryCache implements MeterBinder {
+
+    /**
+     * @param start The start of the routes or null for any start
+     * @param destination The destination of the routes or null for any destination
+     * @param criteria The lower case criteria if filtering or sorting is enabled, otherwise null
+     * @param limit The limit of the sorted routes, otherwise null
+     */
+    record RouteQuery(long version, String start, String destination, boolean filter, boolean sort, String criteria,
+                      Integer limit) { }
+
+    private final RouteService routeService;
+    private final NetworkVersion networkVersion;
+    private final Cache<RouteQuery, List<Route>> results;
+    private final SingleFlight<RouteQuery, List<Route>> loads = new SingleFlight<>();
+    private volatile long purgedVersion;
+
+    /**
+     * @param maximumWeight The maximum number of cached routes and buses over all results
+     * @param maximumSize The maximum number of cached results, every result weighs at least
+     *                    maximumWeight / maximumSize
+     */
+    public RouteQueryCache(RouteService routeService, NetworkVersion networkVersion,
+                           @Value("${route.cache.maximum-weight:100000}") long maximumWeight,
+                           @Value("${route.cache.maximum-size:1000}") long maximumSize) {
+        this.routeService = routeService;
+        this.networkVersion = networkVersion;
+        long minimumWeight = Math.max(1, maximumWeight / Math.max(1, maximumSize));
+        this.results = Caffeine.newBuilder()
+            .maximumWeight(maximumWeight)
+            .weigher((RouteQuery query, List<Route> routes) -> (int) Math.min(Integer.MAX_VALUE,
+                Math.max(minimumWeight, routes.size() + routes.stream().mapToLong(route -> route.buses().size()).sum())))
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns the routes like the route GET endpoints: filtered, sorted or unchanged. The returned list is shared
+     * with other requests and must not be changed.
+     * @param start The start of the routes or null for any start
+     * @param destination The destination of the routes or null for any destination
+     * @param limit The maximum amount of sorted routes or null for all routes
+     */
+    public List<Route> getRoutes(String start, String destination, boolean filter, boolean sort, String criteria,
+                                 Integer limit) {
+        long version = networkVersion.current();
+        if (version != purgedVersion) {
+            // the results of older versions can not be hit anymore
+            purgedVersion = version;
+            results.asMap().keySet().removeIf(query -> query.version() < version);
+        }
+        boolean withCriteria = filter || sort;
+        RouteQuery query = new RouteQuery(version, start, destination, filter, sort,
+            withCriteria ? criteria.toLowerCase() : null, sort && !filter ? limit : null);
+        List<Route> routes = results.getIfPresent(query);
+        if (routes != null) {
+            return routes;
+        }
+        // coalesced outside of the cache, so a running query does not block the loads of other queries
+        return loads.execute(query, () -> {
+            List<Route> loaded = List.copyOf(load(start, destination, filter, sort, criteria, limit));
+            results.put(query, loaded);
+            return loaded;
+        });
+    }
+
+    public void evictAll() {
+        results.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, results, "routes");
+        FunctionCounter.builder("cache.loads", loads, SingleFlight::executedCount)
+            .tags("cache", "routes", "result", "executed")
+            .description("The amount of route queries executed on a cache miss")
+            .register(registry);
+        FunctionCounter.builder("cache.loads", loads, SingleFlight::coalescedCount)
+            .tags("cache", "routes", "result", "coalesced")
+            .description("The amount of route queries answered by a concurrently executed query")
+            .register(registry);
+    }
+
+    private List<Route> load(String start, String destination, boolean filter, boolean sort, String criteria,
+                             Integer limit) {
+        if (filter) {
+            return routeService.getFilteredRoutes(criteria, start, destination);
+        } else if (sort) {
+            return routeService.getSortedRoutes(criteria, start, destination, limit);
+        } else if (start != null && destination != null) {
+            return routeService.getRoutesByStartAndDestination(start, destination);
+        } else if (start != null) {
+            return routeService.getRoutesByStart(start);
+        } else if (destination != null) {
+            return routeService.getRoutesByDestination(destination);
+        }
+        return routeService.getAllRoutes();
+    }
+}
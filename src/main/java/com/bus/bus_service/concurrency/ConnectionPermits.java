@@ -0,0 +1,97 @@
+package com.bus.bus_service.concurrency;
+
+import com.bus.bus_service.exceptions.DatabaseBusyException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the concurrently running transactions to the size of the connection pool with a fair semaphore. With
+ * virtual threads the number of concurrent requests is not limited by the Tomcat thread pool anymore, so without
+ * this limit thousands of requests would queue inside the connection pool and fail after its connection timeout.
+ * A permit is acquired before a new transaction begins and released after its commit or rollback, transactions
+ * joining an existing transaction do not need another permit. The permits cover the @Transactional methods and the
+ * TransactionTemplates as well as the transactions of the repositories.
+ * The waiting time is exported as "database.permits.wait" and the waiting requests as "database.permits.waiting".
+ */
+@Component
+public class ConnectionPermits implements TransactionExecutionListener {
+
+    private final Semaphore permits;
+    private final Duration timeout;
+    // the transactions holding a permit, so a permit is only released by the transaction which acquired it
+    private final Set<TransactionExecution> holders = ConcurrentHashMap.newKeySet();
+    private final Timer waitTimer;
+
+    /**
+     * @param maxConcurrency The maximum amount of concurrent transactions, by default the size of the connection pool
+     * @param timeout The maximum waiting time for a permit, by default the connection timeout of the pool
+     */
+    public ConnectionPermits(MeterRegistry meterRegistry,
+                             @Value("${database.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+                             @Value("${database.permit-timeout:${spring.datasource.hikari.connection-timeout:30000}ms}") Duration timeout) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.timeout = timeout;
+        this.waitTimer = Timer.builder("database.permits.wait")
+            .description("The time waited for a permit to begin a transaction")
+            .register(meterRegistry);
+        Gauge.builder("database.permits.available", permits, Semaphore::availablePermits)
+            .description("The amount of transactions which can begin without waiting")
+            .register(meterRegistry);
+        Gauge.builder("database.permits.waiting", permits, Semaphore::getQueueLength)
+            .description("The amount of threads waiting for a permit")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void beforeBegin(TransactionExecution transaction) {
+        if (!transaction.isNewTransaction()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new DatabaseBusyException(timeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseBusyException(timeout);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        holders.add(transaction);
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure != null) {
+            release(transaction);
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        release(transaction);
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        release(transaction);
+    }
+
+    private void release(TransactionExecution transaction) {
+        if (holders.remove(transaction)) {
+            permits.release();
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.bus.bus_service.controller;
 
 import com.bus.bus_service.dto.Bus;
+import com.bus.bus_service.dto.BusBatchResult;
 import com.bus.bus_service.dto.BusMapper;
+import com.bus.bus_service.dto.KeysetPage;
 import com.bus.bus_service.entities.BusEntity;
 import com.bus.bus_service.service.BusService;
+import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,26 +17,35 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 @RestController
+@Timed("bus.controller")
 @RequestMapping("/api/v1/bus")
 @Tag(name = "Bus Management", description = "API for managing buses")
 public class BusController {
 
     private final BusMapper busMapper;
     private final BusService busService;
+    private final Validator validator;
 
-    public BusController(BusMapper busMapper, BusService busService){
+    public BusController(BusMapper busMapper, BusService busService, Validator validator){
         this.busMapper = busMapper;
         this.busService = busService;
+        this.validator = validator;
     }
 
     private final Logger logger = LoggerFactory.getLogger(BusController.class);
@@ -95,6 +108,64 @@ public class BusController {
         return ResponseEntity.internalServerError().build();
     }
 
+    @Operation(summary = "Creates multiple buses", description = "Adds all valid buses of the list to the database "
+        + "with batched inserts. The response contains one result per bus in the order of the request.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch processed - the status of every bus is in the result list",
+            content = { @Content(mediaType = "application/json",
+                examples = @ExampleObject(
+                    value = "[{\"index\": 0, \"busNumber\": 124, \"status\": \"CREATED\", \"bus\": {\"busId\": 1, "
+                        + "\"busNumber\": 124, \"name\": \"Tom\", \"kmPrice\": 3.5, \"averageSpeed\": 50.0}, \"errors\": []},"
+                        + "{\"index\": 1, \"busNumber\": 124, \"status\": \"DUPLICATE\", \"bus\": null, \"errors\": []},"
+                        + "{\"index\": 2, \"busNumber\": null, \"status\": \"INVALID\", \"bus\": null, "
+                        + "\"errors\": [\"busNumber cannot be null\"]}]")
+            ) }),
+        @ApiResponse(responseCode = "400", description = "The request body is not a list of buses", content = @Content)
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<List<BusBatchResult>> postBuses(
+        @RequestBody(description = "The buses to create. The field 'busId' is ignored in the input.",
+            required = true,
+            content = @Content(
+                mediaType = "application/json",
+                examples = @ExampleObject(
+                    value = "[{\"busNumber\": 124, \"name\": \"Tom\", \"kmPrice\": 3.5, \"averageSpeed\": 50.0},"
+                        + "{\"busNumber\": 122, \"name\": \"Max\", \"kmPrice\": 1.5, \"averageSpeed\": 70.0}]")))
+        @org.springframework.web.bind.annotation.RequestBody List<Bus> buses) {
+
+        logger.info("Received POST request - \"/api/v1/bus/batch\" - {} buses", buses.size());
+        BusBatchResult[] results = new BusBatchResult[buses.size()];
+        List<Integer> validIndices = new ArrayList<>();
+        List<BusEntity> validBuses = new ArrayList<>();
+        for (int i = 0; i < buses.size(); i++) {
+            Bus bus = buses.get(i);
+            List<String> errors = bus == null ? List.of("Bus cannot be null")
+                : validator.validate(bus).stream().map(ConstraintViolation::getMessage).sorted().toList();
+            if (!errors.isEmpty()) {
+                results[i] = new BusBatchResult(i, bus == null ? null : bus.busNumber(),
+                    BusBatchResult.Status.INVALID, null, errors);
+            } else {
+                validIndices.add(i);
+                validBuses.add(busMapper.toEntity(bus));
+            }
+        }
+
+        List<Optional<BusEntity>> created = busService.createBuses(validBuses);
+        for (int i = 0; i < created.size(); i++) {
+            int index = validIndices.get(i);
+            Optional<BusEntity> busEntityOptional = created.get(i);
+            results[index] = busEntityOptional
+                .map(busEntity -> new BusBatchResult(index, busEntity.getBusNumber(), BusBatchResult.Status.CREATED,
+                    busMapper.toDTO(busEntity), List.of()))
+                .orElseGet(() -> new BusBatchResult(index, buses.get(index).busNumber(),
+                    BusBatchResult.Status.DUPLICATE, null, List.of()));
+        }
+
+        logger.info("POST request successful (200) - \"/api/v1/bus/batch\" - created {} of {} buses",
+            created.stream().filter(Optional::isPresent).count(), buses.size());
+        return ResponseEntity.ok(Arrays.asList(results));
+    }
+
     @Operation(summary = "Updates an existing bus", description = "Updates the bus with the given busId in the URL.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Bus successfully updated",
@@ -169,9 +240,12 @@ public class BusController {
     }
 
     @Operation(summary = "Gets all buses",
-        description = "Retrieves a list of all existing buses.")
+        description = "Retrieves a list of all existing buses. <br />If a limit is given, the list is paginated and the "
+            + "continuation token for the next page is returned in the \"" + KeysetPage.CONTINUATION_HEADER + "\" header.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "OK",
+            headers = @Header(name = KeysetPage.CONTINUATION_HEADER,
+                description = "The continuation token for the next page, missing on the last page"),
             content = { @Content(mediaType = "application/json",
                 schema = @Schema(implementation = Bus.class,
                     example = "[{\"busId\": 1, \"busNumber\": 124, \"name\": \"Tom\", \"kmPrice\": 3.5, \"averageSpeed\": 50.0}"
@@ -179,15 +253,31 @@ public class BusController {
             ) })
     })
     @GetMapping
-    public ResponseEntity<List<Bus>> getAllBusses() {
+    public ResponseEntity<List<Bus>> getAllBusses(
+        @Parameter(
+            name = "limit",
+            description = "The maximum number of buses per page. Enables keyset pagination.")
+        @RequestParam(required = false) @Min(1) @Max(KeysetPage.MAX_LIMIT) Integer limit,
+        @Parameter(
+            name = "continuation",
+            description = "The continuation token of the previous page, taken from the \""
+                + KeysetPage.CONTINUATION_HEADER + "\" header.")
+        @RequestParam(required = false) String continuation) {
         logger.info("Received GET request - \"/api/v1/bus\"");
 
-        List<Bus> busses = mapEntitiesToDTOS(busService.getAllBusses());
+        if (limit != null || continuation != null) {
+            KeysetPage<Bus> page = busService.getBusPage(continuation,
+                limit == null ? KeysetPage.DEFAULT_LIMIT : limit);
+            List<Bus> busses = page.content();
+            logger.info("GET request successful (200) - \"/api/v1/bus?limit={}\" - found {} busses", limit, busses.size());
+            if (page.next() == null) {
+                return ResponseEntity.ok(busses);
+            }
+            return ResponseEntity.ok().header(KeysetPage.CONTINUATION_HEADER, page.next().encode()).body(busses);
+        }
+
+        List<Bus> busses = busService.getAllBusses();
         logger.info("GET request successful (200) - \"/api/v1/bus\" - found {} busses", busses.size());
         return ResponseEntity.ok(busses);
     }
-
-    private List<Bus> mapEntitiesToDTOS(List<BusEntity> busEntities) {
-        return busEntities.stream().map(busMapper::toDTO).toList();
-    }
 }
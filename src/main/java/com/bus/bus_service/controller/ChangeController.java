@@ -0,0 +1,68 @@
+package com.bus.bus_service.controller;
+
+import com.bus.bus_service.dto.NetworkChanges;
+import com.bus.bus_service.service.ChangeLogService;
+import io.micrometer.core.annotation.Timed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@Timed("change.controller")
+@RequestMapping("/api/v1/changes")
+@Tag(name = "Change Synchronization", description = "API for synchronizing a copy of the routes and buses")
+public class ChangeController {
+
+    private final ChangeLogService changeLogService;
+
+    public ChangeController(ChangeLogService changeLogService) {
+        this.changeLogService = changeLogService;
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ChangeController.class);
+
+    @Operation(summary = "Returns the route and bus changes since a token",
+        description = "Without a token all routes and buses are returned. With the token of a previous response "
+            + "only the routes and buses changed since that response are returned: the created or changed ones in "
+            + "their current state and the ids of the deleted ones. If there are more changes than routes and "
+            + "buses, all routes and buses are returned instead and the response is marked as complete. Every "
+            + "response contains the token for the next request.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK",
+            content = { @Content(mediaType = "application/json",
+                examples = @ExampleObject(
+                    value = "{\"complete\": false, \"routes\": [{\"routeId\": 1, \"start\": \"HTW-Saar\", "
+                        + "\"destination\": \"Rathaus\", \"buses\": [{\"busId\": 2, \"busNumber\": 122, "
+                        + "\"name\": \"Max\", \"kmPrice\": 1.5, \"averageSpeed\": 50}]}], \"deletedRouteIds\": [3], "
+                        + "\"buses\": [], \"deletedBusIds\": [], \"token\": \"Y2hhbmdlc3w0Mnx8\"}")
+            )}),
+        @ApiResponse(responseCode = "400", description = "Invalid token",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(
+                    value = "{\"error\": \"The continuation token is invalid\", \"continuation\": \"abc\"}"
+                )))
+    })
+    @GetMapping
+    public ResponseEntity<NetworkChanges> getChanges(
+        @Parameter(name = "since", description = "The token of the previous response, all routes and buses if absent.",
+            example = "Y2hhbmdlc3w0Mnx8")
+        @RequestParam(required = false) String since) {
+        logger.info("Received GET request - \"/api/v1/changes?since={}\"", since);
+        NetworkChanges changes = changeLogService.getChanges(since);
+        logger.info("GET request successful (200) - \"/api/v1/changes?since={}\" - {} routes, {} deleted routes, "
+                + "{} buses, {} deleted buses", since, changes.routes().size(), changes.deletedRouteIds().size(),
+            changes.buses().size(), changes.deletedBusIds().size());
+        return ResponseEntity.ok(changes);
+    }
+}
@@ -0,0 +1,121 @@
+package com.bus.bus_service.controller;
+
+import com.bus.bus_service.dto.Journey;
+import com.bus.bus_service.dto.JourneyMatrix;
+import com.bus.bus_service.dto.JourneyMatrixRequest;
+import com.bus.bus_service.service.JourneyService;
+import io.micrometer.core.annotation.Timed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@Timed("journey.controller")
+@RequestMapping("/api/v1/journey")
+@Tag(name = "Journey Planning", description = "API for planning journeys over multiple routes")
+public class JourneyController {
+
+    private final JourneyService journeyService;
+
+    public JourneyController(JourneyService journeyService) {
+        this.journeyService = journeyService;
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(JourneyController.class);
+
+    @Operation(summary = "Plans a journey between two locations",
+        description = "Finds the best chain of routes from one location to another. The journey is planned on an "
+            + "in-memory index of the route network and has either the fewest transfers, the lowest total price or "
+            + "the highest average speed.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK",
+            content = { @Content(mediaType = "application/json",
+                examples = @ExampleObject(
+                    value = "{\"from\": \"HTW-Saar\", \"to\": \"Rathaus\", \"transfers\": 1, \"totalKmPrice\": 3.0, "
+                        + "\"averageSpeed\": 60.0, \"legs\": [{\"routeId\": 1, \"start\": \"HTW-Saar\", "
+                        + "\"destination\": \"Saarbrücken Hauptbahnhof\", \"bus\": {\"busId\": 2, \"busNumber\": 122, "
+                        + "\"name\": \"Max\", \"kmPrice\": 1.5, \"averageSpeed\": 50}}, {\"routeId\": 3, "
+                        + "\"start\": \"Saarbrücken Hauptbahnhof\", \"destination\": \"Rathaus\", \"bus\": {\"busId\": 3, "
+                        + "\"busNumber\": 123, \"name\": \"Max\", \"kmPrice\": 1.5, \"averageSpeed\": 75}}]}")
+            )}),
+        @ApiResponse(responseCode = "400", description = "Unknown criteria", content = @Content),
+        @ApiResponse(responseCode = "404", description = "No journey between these locations found",
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(
+                    value = "{\"error\": \"No journey between these locations found\", \"from\": \"HTW-Saar\", \"to\": \"Rathaus\"}"
+                )))
+    })
+    @GetMapping
+    public ResponseEntity<Journey> getJourney(
+        @Parameter(name = "from", description = "The journey start location.", example = "HTW-Saar")
+        @RequestParam String from,
+        @Parameter(name = "to", description = "The journey destination.", example = "Rathaus")
+        @RequestParam String to,
+        @Parameter(
+            name = "criteria",
+            description = "The criteria for choosing the best journey.",
+            examples = {
+                @ExampleObject(name = "Transfers", value = "transfers"),
+                @ExampleObject(name = "Price", value = "price"),
+                @ExampleObject(name = "Speed", value = "speed")
+            })
+        @RequestParam(required = false, defaultValue = "transfers") String criteria) {
+        logger.info("Received GET request - \"/api/v1/journey?from={}&to={}&criteria={}\"", from, to, criteria);
+        if (!journeyService.isSupportedCriteria(criteria)) {
+            logger.warn("GET request failed (400) - \"/api/v1/journey?from={}&to={}&criteria={}\" - Unknown criteria",
+                from, to, criteria);
+            return ResponseEntity.badRequest().build();
+        }
+        Journey journey = journeyService.findJourney(from, to, criteria);
+        logger.info("GET request successful (200) - \"/api/v1/journey?from={}&to={}&criteria={}\" - {} legs",
+            from, to, criteria, journey.legs().size());
+        return ResponseEntity.ok(journey);
+    }
+
+    @Operation(summary = "Calculates a journey cost matrix",
+        description = "Calculates the cost of the best journey between every pair of the given locations in one "
+            + "request. The cost is the number of transfers, the total price or the total travel time "
+            + "(sum of 1 / averageSpeed) depending on the criteria; unreachable pairs are null.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK",
+            content = { @Content(mediaType = "application/json",
+                examples = @ExampleObject(
+                    value = "{\"stations\": [\"HTW-Saar\", \"Rathaus\"], \"criteria\": \"price\", "
+                        + "\"costs\": [[0.0, 3.0], [null, 0.0]]}")
+            )}),
+        @ApiResponse(responseCode = "400", description = "Invalid input data or unknown criteria", content = @Content)
+    })
+    @PostMapping("/matrix")
+    public ResponseEntity<JourneyMatrix> getJourneyMatrix(
+        @RequestBody(description = "The locations and the criteria (transfers, price or speed, default price).",
+            required = true,
+            content = @Content(mediaType = "application/json",
+                examples = @ExampleObject(value = "{\"stations\": [\"HTW-Saar\", \"Rathaus\"], \"criteria\": \"price\"}")))
+        @Valid @org.springframework.web.bind.annotation.RequestBody JourneyMatrixRequest request) {
+        String criteria = request.criteria() == null ? "price" : request.criteria();
+        logger.info("Received POST request - \"/api/v1/journey/matrix\" - {} stations, criteria {}",
+            request.stations().size(), criteria);
+        if (!journeyService.isSupportedCriteria(criteria)) {
+            logger.warn("POST request failed (400) - \"/api/v1/journey/matrix\" - Unknown criteria {}", criteria);
+            return ResponseEntity.badRequest().build();
+        }
+        JourneyMatrix matrix = journeyService.getJourneyMatrix(request.stations(), criteria);
+        logger.info("POST request successful (200) - \"/api/v1/journey/matrix\" - {} x {} matrix",
+            request.stations().size(), request.stations().size());
+        return ResponseEntity.ok(matrix);
+    }
+}
@@ -1,44 +1,64 @@
 package com.bus.bus_service.controller;
 
+import com.bus.bus_service.cache.RouteQueryCache;
 import com.bus.bus_service.dto.Bus;
+import com.bus.bus_service.dto.KeysetPage;
 import com.bus.bus_service.dto.Route;
 import com.bus.bus_service.dto.RouteCreationDTO;
+import com.bus.bus_service.dto.RouteImportReport;
 import com.bus.bus_service.dto.RouteMapper;
-import com.bus.bus_service.entities.BusEntity;
 import com.bus.bus_service.entities.RouteEntity;
-import com.bus.bus_service.service.BusService;
+import com.bus.bus_service.service.RouteExportService;
+import com.bus.bus_service.service.RouteImportService;
 import com.bus.bus_service.service.RouteService;
+import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
 @RestController
+@Timed("route.controller")
 @Tag(name = "Route Management", description = "API for creating, updating, deleting routes. " +
         "Also allows to connect buses to routes")
 @RequestMapping("/api/v1/route")
 public class RouteController {
 
     private final RouteService routeService;
+    private final RouteQueryCache routeQueryCache;
     private final RouteMapper routeMapper;
-    private final BusService busService;
+    private final RouteImportService routeImportService;
+    private final RouteExportService routeExportService;
 
-    public RouteController(RouteService routeService, RouteMapper routeMapper, BusService busService){
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String CSV_VALUE = "text/csv";
+
+    public RouteController(RouteService routeService, RouteQueryCache routeQueryCache, RouteMapper routeMapper,
+                           RouteImportService routeImportService, RouteExportService routeExportService){
         this.routeService = routeService;
+        this.routeQueryCache = routeQueryCache;
         this.routeMapper = routeMapper;
-        this.busService = busService;
+        this.routeImportService = routeImportService;
+        this.routeExportService = routeExportService;
     }
 
     private final Logger logger = LoggerFactory.getLogger(RouteController.class);
@@ -90,16 +110,49 @@ public class RouteController {
             ))
                                            @Valid @RequestBody RouteCreationDTO routeCreationDTO) {
         logger.info("Received POST request - \"/api/v1/route\"");
-        List<Integer> busNumber = routeCreationDTO.busNumber();
-        Optional<RouteEntity> routeEntityOptional = routeService.buildRoute(busNumber, routeCreationDTO.start(), routeCreationDTO.destination());
-        if(routeEntityOptional.isPresent()){
-            RouteEntity routeEntity = routeEntityOptional.get();
-            Route routeDto = routeMapper.toDTO(routeService.createRoute(routeEntity));
-            logger.info("POST request successful (200) - \"/api/v1/route\"");
-            return ResponseEntity.ok(routeDto);
-        }
+        Route routeDto = routeMapper.toDTO(routeService.createRoute(routeCreationDTO.busNumber(),
+            routeCreationDTO.start(), routeCreationDTO.destination()));
+        logger.info("POST request successful (200) - \"/api/v1/route\"");
+        return ResponseEntity.ok(routeDto);
+    }
 
-        return ResponseEntity.internalServerError().build();
+    @Operation(summary = "Imports routes from NDJSON or CSV", description = "Creates one route per line of the request body. "
+        + "The body is read as a stream and written in chunks, so it can contain any number of routes. "
+        + "<br />NDJSON (" + NDJSON_VALUE + "): one object per line like the body of POST /api/v1/route. "
+        + "<br />CSV (" + CSV_VALUE + "): a header with the columns start, destination and busNumber, "
+        + "multiple bus numbers are separated by semicolons.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Import finished - lines that could not be imported are listed in the report",
+            content = { @Content(mediaType = "application/json",
+                schema = @Schema(implementation = RouteImportReport.class,
+                    example = "{\"processedLines\": 3, \"importedRoutes\": 2, \"failedLines\": 1, \"errors\": [{\"line\": 3, "
+                        + "\"error\": \"One or more buses with the given busNumbers do not exist: [41]\"}], \"errorsTruncated\": false}")
+            ) }),
+        @ApiResponse(responseCode = "415", description = "Unsupported content type", content = @Content)
+    })
+    @PostMapping(value = "/import", consumes = {NDJSON_VALUE, CSV_VALUE})
+    public ResponseEntity<RouteImportReport> importRoutes(
+        @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "The routes to import",
+            required = true,
+            content = {
+                @Content(mediaType = NDJSON_VALUE, examples = @ExampleObject(
+                    value = "{\"start\": \"HTW-Saar\", \"destination\": \"Rathaus\", \"busNumber\": [123]}\n"
+                        + "{\"start\": \"Rathaus\", \"destination\": \"HTW-Saar\", \"busNumber\": [122, 124]}")),
+                @Content(mediaType = CSV_VALUE, examples = @ExampleObject(
+                    value = "start,destination,busNumber\nHTW-Saar,Rathaus,123\nRathaus,HTW-Saar,122;124"))
+            })
+        HttpServletRequest request) throws IOException {
+        logger.info("Received POST request - \"/api/v1/route/import\" - {}", request.getContentType());
+        RouteImportReport report;
+        if (MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType(CSV_VALUE))) {
+            report = routeImportService.importCsv(request.getInputStream());
+        } else {
+            report = routeImportService.importNdjson(request.getInputStream());
+        }
+        logger.info("POST request successful (200) - \"/api/v1/route/import\" - imported {} routes, {} lines failed",
+            report.importedRoutes(), report.failedLines());
+        return ResponseEntity.ok(report);
     }
 
     @Operation(summary = "Updates an existing route", description = "Updates an existing route with the given start, " +
@@ -144,13 +197,11 @@ public class RouteController {
                                     example = "{\"start\": \"HTW-Saar\", \"destination\": \"Johanneskirche\", \"busNumber\": [123]}")))
             @Valid @RequestBody RouteCreationDTO routeCreationDTO) {
         logger.info("Received PUT request - \"/api/v1/route/{}\"", id);
-        Optional<RouteEntity> updatedRouteOptional = routeService.buildRoute(routeCreationDTO.busNumber(), routeCreationDTO.start(), routeCreationDTO.destination());
-        if(updatedRouteOptional.isPresent()){
-            Optional<RouteEntity> routeOptional = routeService.updateRoute(id, updatedRouteOptional.get());
-            if (routeOptional.isPresent()) {
-                logger.info("PUT request successful (200) - \"/api/v1/route/{}\"", id);
-                return ResponseEntity.ok(routeMapper.toDTO(routeOptional.get()));
-            }
+        Optional<RouteEntity> routeOptional = routeService.updateRoute(id, routeCreationDTO.busNumber(),
+            routeCreationDTO.start(), routeCreationDTO.destination());
+        if (routeOptional.isPresent()) {
+            logger.info("PUT request successful (200) - \"/api/v1/route/{}\"", id);
+            return ResponseEntity.ok(routeMapper.toDTO(routeOptional.get()));
         }
         logger.warn("PUT request failed (500) - \"/api/v1/route/{}\" - Internal Server Error", id);
         return ResponseEntity.internalServerError().build();
@@ -200,22 +251,52 @@ public class RouteController {
             example = "123")
         @PathVariable(value = "bus_number") Integer busNumber){
         logger.info("Received PUT request - \"/api/v1/route/add_bus/{}/to_route/{}\"", busNumber, id);
-        Optional<BusEntity> busEntityOptional = busService.getBusByBusNumber(busNumber);
-        Optional<RouteEntity> routeEntityOptional = routeService.getRouteById(id);
-
-        if (busEntityOptional.isEmpty() || routeEntityOptional.isEmpty()){
-            logger.warn("PUT request failed (500) - \"/api/v1/add_bus/{}/to_route/{}\" - Internal Server Error", busNumber, id);
-            return ResponseEntity.internalServerError().build();
-        }
-
-        RouteEntity routeEntity = routeEntityOptional.get();
-        Optional<RouteEntity> updatedRouteEntityOptional = routeService.addBusToRoute(routeEntity, busEntityOptional.get());
-        if(updatedRouteEntityOptional.isEmpty()){
-            logger.warn("PUT request failed (500) - \"/api/v1/add_bus/{}/to_route/{}\" - Internal Server Error", busNumber, id);
-            return ResponseEntity.internalServerError().build();
-        }
+        Route route = routeService.addBusToRoute(id, busNumber);
+        logger.info("PUT request successful (200) - \"/api/v1/route/add_bus/{}/to_route/{}\"", busNumber, id);
+        return ResponseEntity.ok(route);
+    }
 
-        return ResponseEntity.ok(routeMapper.toDTO(updatedRouteEntityOptional.get()));
+    @Operation(summary = "Removes a bus from a route", description = "Updates an existing route by removing the specified "
+        + "bus from it's bus-list. The bus itself is not deleted.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Route successfully updated - bus successfully removed",
+            content = { @Content(mediaType = "application/json",
+                schema = @Schema(implementation = Route.class,
+                    example = "{\"routeId\": 1, \"start\": \"HTW-Saar\", \"destination\": \"Saarbrücken Hauptbahnhof\", "
+                        + "\"buses\": [{\"busId\": 1, \"busNumber\": 124, \"name\": \"Tom\", \"kmPrice\": 3.5, \"averageSpeed\": 50}]}")
+            ) }),
+        @ApiResponse(responseCode = "404",
+            content = @Content(mediaType = "application/json",
+                examples = {@ExampleObject(
+                    name = "No route with this routeId found",
+                    value="{\"error\": \"No route with this routeId found\", \"missing_Id\": 4}"
+                ),
+                @ExampleObject(
+                    name = "No bus with this busNumber found",
+                    value="{\"error\": \"No bus with this busNumber found\", \"missing_Number\": 4}"
+                ),
+                @ExampleObject(
+                    name = "The route does not contain the bus",
+                    value = "{\"bus_Number\": 123, \"route_Id\": 1, \"error\": \"The specified route does not contain the specified bus\"}"
+                )}
+            ))
+    })
+    @DeleteMapping("/remove_bus/{bus_number}/from_route/{id}")
+    public ResponseEntity<Route> removeBusFromRoute(
+        @Parameter(
+            name = "id",
+            description = "The Id of the route to update",
+            example = "1")
+        @PathVariable(value = "id") Long id,
+        @Parameter(
+            name = "bus_number",
+            description = "The bus number of the bus to be removed from the route",
+            example = "123")
+        @PathVariable(value = "bus_number") Integer busNumber){
+        logger.info("Received DELETE request - \"/api/v1/route/remove_bus/{}/from_route/{}\"", busNumber, id);
+        Route route = routeService.removeBusFromRoute(id, busNumber);
+        logger.info("DELETE request successful (200) - \"/api/v1/route/remove_bus/{}/from_route/{}\"", busNumber, id);
+        return ResponseEntity.ok(route);
     }
 
     @Operation(summary = "Deletes a route", description = "Deletes the route with the given routeId in the URL.")
@@ -240,9 +321,13 @@ public class RouteController {
     }
 
     @Operation(summary = "Gets all routes",
-        description = "Retrieves a list of all existing routes. Each route has a bus list showing which bus uses that route.")
+        description = "Retrieves a list of all existing routes. Each route has a bus list showing which bus uses that route. "
+            + "<br />If a limit is given, the list is paginated and the continuation token for the next page is returned "
+            + "in the \"" + KeysetPage.CONTINUATION_HEADER + "\" header.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "OK",
+            headers = @Header(name = KeysetPage.CONTINUATION_HEADER,
+                description = "The continuation token for the next page, missing on the last page"),
             content = { @Content(mediaType = "application/json",
                 examples = {
                     @ExampleObject(
@@ -292,23 +377,77 @@ public class RouteController {
                     value = "speed"
                 )
             })
-        @RequestParam(required = false, defaultValue = "price") String criteria) {
+        @RequestParam(required = false, defaultValue = "price") String criteria,
+        @Parameter(
+            name = "limit",
+            description = "The maximum number of routes per page. Enables keyset pagination."
+                + "<br />Example URL: https://bus.edu.smef.io/api/v1/route?limit=50")
+        @RequestParam(required = false) @Min(1) @Max(KeysetPage.MAX_LIMIT) Integer limit,
+        @Parameter(
+            name = "continuation",
+            description = "The continuation token of the previous page, taken from the \""
+                + KeysetPage.CONTINUATION_HEADER + "\" header.")
+        @RequestParam(required = false) String continuation) {
         logger.info("Received GET request - \"/api/v1/route?filter={}&sort={}&criteria={}\"", filter, sort, criteria);
 
         List<Route> routes;
 
-        if (filter) {
-            routes = mapEntitiesToDTOS(routeService.filterRoutes(criteria, routeService.getAllRoutes()));
-        } else if (sort) {
-            routes = mapEntitiesToDTOS(routeService.sortRoutes(criteria, routeService.getAllRoutes()));
+        if (limit != null || continuation != null) {
+            KeysetPage<Route> page = routeService.getRoutePage(filter, sort, criteria, continuation,
+                limit == null ? KeysetPage.DEFAULT_LIMIT : limit);
+            routes = page.content();
+            logger.info("GET request successful (200) - \"/api/v1/route?filter={}&sort={}&criteria={}&limit={}\" "
+                + "- found {} routes", filter, sort, criteria, limit, routes.size());
+            if (page.next() == null) {
+                return ResponseEntity.ok(routes);
+            }
+            return ResponseEntity.ok().header(KeysetPage.CONTINUATION_HEADER, page.next().encode()).body(routes);
         } else {
-            routes = mapEntitiesToDTOS(routeService.getAllRoutes());
+            routes = routeQueryCache.getRoutes(null, null, filter, sort, criteria, null);
         }
         logger.info("GET request successful (200) - \"/api/v1/route?filter={}&sort={}&criteria={}\" - found {} routes",
                 filter, sort, criteria, routes.size());
         return ResponseEntity.ok(routes);
     }
 
+    @Operation(summary = "Exports all routes as NDJSON or CSV",
+        description = "Streams all routes with their buses. The routes are written while they are read from the database, "
+            + "so the export starts immediately and works for networks of any size. "
+            + "<br />ndjson: one route per line in the format of GET /api/v1/route. "
+            + "<br />csv: the columns routeId, start, destination and busNumber (separated by semicolons), "
+            + "the file can be imported with POST /api/v1/route/import.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK",
+            content = {
+                @Content(mediaType = NDJSON_VALUE, examples = @ExampleObject(
+                    value = "{\"routeId\": 2, \"start\": \"HTW-Saar\", \"destination\": \"Rathaus\", \"buses\": ["
+                        + "{\"busId\": 3, \"busNumber\": 123, \"name\": \"Max\", \"kmPrice\": 1.5, \"averageSpeed\": 90}]}")),
+                @Content(mediaType = CSV_VALUE, examples = @ExampleObject(
+                    value = "routeId,start,destination,busNumber\n2,HTW-Saar,Rathaus,123"))
+            })
+    })
+    @GetMapping(value = "/export", produces = {NDJSON_VALUE, CSV_VALUE})
+    public ResponseEntity<StreamingResponseBody> exportRoutes(
+        @Parameter(
+            name = "format",
+            description = "The export format: ndjson or csv",
+            examples = {
+                @ExampleObject(name = "NDJSON", value = "ndjson"),
+                @ExampleObject(name = "CSV", value = "csv")
+            })
+        @RequestParam(required = false, defaultValue = "ndjson") String format) {
+        logger.info("Received GET request - \"/api/v1/route/export?format={}\"", format);
+        if (format.equalsIgnoreCase("csv")) {
+            return ResponseEntity.ok().contentType(MediaType.parseMediaType(CSV_VALUE))
+                .body(routeExportService::exportCsv);
+        } else if (format.equalsIgnoreCase("ndjson")) {
+            return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(routeExportService::exportNdjson);
+        }
+        logger.warn("GET request failed (400) - \"/api/v1/route/export?format={}\" - Unknown format", format);
+        return ResponseEntity.badRequest().build();
+    }
+
     @Operation(summary = "Gets all routes starting from a specified location",
         description = "Retrieves a list of all existing routes that start at the specified location. "
             + "Each route has a bus list showing which bus uses that route.")
@@ -355,17 +494,15 @@ public class RouteController {
                     value = "speed"
                 )
             })
-        @RequestParam(required = false, defaultValue = "price") String criteria) {
+        @RequestParam(required = false, defaultValue = "price") String criteria,
+        @Parameter(
+            name = "limit",
+            description = "The maximum number of returned route-bus combinations if sorting is enabled, "
+                + "e.g. the 10 cheapest connections.")
+        @RequestParam(required = false) @Min(1) Integer limit) {
         logger.info("Received GET request - \"/api/v1/route/from/{}?filter={}&sort={}&criteria={}\"",
                 start, filter, sort, criteria);
-        List<Route> routes;
-        if (filter) {
-            routes = mapEntitiesToDTOS(routeService.filterRoutes(criteria, routeService.getRoutesByStart(start)));
-        } else if (sort) {
-            routes = mapEntitiesToDTOS(routeService.sortRoutes(criteria, routeService.getRoutesByStart(start)));
-        } else {
-            routes = mapEntitiesToDTOS(routeService.getRoutesByStart(start));
-        }
+        List<Route> routes = routeQueryCache.getRoutes(start, null, filter, sort, criteria, limit);
         logger.info("GET request successful (200) - \"/api/v1/route/from/{}?filter={}&sort={}&criteria={}\" - found {} routes",
                 start, filter, sort, criteria, routes.size());
         return ResponseEntity.ok(routes);
@@ -415,19 +552,15 @@ public class RouteController {
                     value = "speed"
                 )
             })
-        @RequestParam(required = false, defaultValue = "price") String criteria) {
+        @RequestParam(required = false, defaultValue = "price") String criteria,
+        @Parameter(
+            name = "limit",
+            description = "The maximum number of returned route-bus combinations if sorting is enabled, "
+                + "e.g. the 10 cheapest connections.")
+        @RequestParam(required = false) @Min(1) Integer limit) {
         logger.info("Received GET request - \"/api/v1/route/to/{}?filter={}&sort={}&criteria={}\"",
                 destination,filter, sort, criteria);
-        List<Route> routes;
-        if (filter) {
-            routes = mapEntitiesToDTOS(routeService.filterRoutes(criteria, routeService.
-                    getRoutesByDestination(destination)));
-        } else if (sort) {
-            routes = mapEntitiesToDTOS(routeService.sortRoutes(criteria, routeService.
-                    getRoutesByDestination(destination)));
-        } else {
-            routes = mapEntitiesToDTOS(routeService.getRoutesByDestination(destination));
-        }
+        List<Route> routes = routeQueryCache.getRoutes(null, destination, filter, sort, criteria, limit);
         logger.info("GET request successful (200) - \"/api/v1/route/to/{}?filter={}&sort={}&criteria={}\" - found {} routes",
                 destination,filter, sort, criteria, routes.size());
         return ResponseEntity.ok(routes);
@@ -482,28 +615,20 @@ public class RouteController {
                     value = "speed"
                 )
             })
-        @RequestParam(required = false, defaultValue = "price") String criteria) {
+        @RequestParam(required = false, defaultValue = "price") String criteria,
+        @Parameter(
+            name = "limit",
+            description = "The maximum number of returned route-bus combinations if sorting is enabled, "
+                + "e.g. the 10 cheapest connections.")
+        @RequestParam(required = false) @Min(1) Integer limit) {
         logger.info("Received GET request - \"/api/v1/route/from/{}/to/{}?filter={}&sort={}&criteria={}\"",
                 start, destination, filter, sort, criteria);
-        List<Route> routes;
-        if (filter) {
-            routes = mapEntitiesToDTOS(routeService.filterRoutes(criteria,routeService.
-                    getRoutesByStartAndDestination(start, destination)));
-        } else if (sort) {
-            routes = mapEntitiesToDTOS(routeService.sortRoutes(criteria, routeService.
-                    getRoutesByStartAndDestination(start, destination)));
-        } else {
-            routes = mapEntitiesToDTOS(routeService.getRoutesByStartAndDestination(start, destination));
-        }
+        List<Route> routes = routeQueryCache.getRoutes(start, destination, filter, sort, criteria, limit);
         logger.info("GET request successful (200) - \"/api/v1/route/from/{}/to/{}?filter={}&sort={}&criteria={}\" " +
                         "- found {} routes",
                 start, destination,filter, sort, criteria, routes.size());
         return ResponseEntity.ok(routes);
 
     }
-
-    private List<Route> mapEntitiesToDTOS(List<RouteEntity> routeEntities) {
-        return routeEntities.stream().map(routeMapper::toDTO).toList();
-    }
 }
 
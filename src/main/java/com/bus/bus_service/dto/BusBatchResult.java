@@ -0,0 +1,25 @@
+package com.bus.bus_service.dto;
+
+import java.util.List;
+
+/**
+ * The result for a single bus of a batch creation request
+ * @param index The position of the bus in the request
+ * @param busNumber The bus number of the requested bus
+ * @param status Whether the bus was created or why it was rejected
+ * @param bus The created bus, null if the bus was rejected
+ * @param errors The validation errors of an invalid bus
+ */
+public record BusBatchResult(
+    int index,
+    Integer busNumber,
+    Status status,
+    Bus bus,
+    List<String> errors
+) {
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID
+    }
+}
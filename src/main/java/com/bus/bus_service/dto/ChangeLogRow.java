@@ -0,0 +1,19 @@
+package com.bus.bus_service.dto;
+
+import com.bus.bus_service.entities.ChangeLogEntity.EntityType;
+
+/**
+ * The compacted changes of a route or bus as returned by the ChangeLogRepository: the version of its latest change
+ * and whether it was deleted
+ */
+public record ChangeLogRow(
+    EntityType entityType,
+    Long entityId,
+    Long version,
+    boolean deleted
+) {
+    // the query returns the deletion as the maximum of 0 and 1 over the changes
+    public ChangeLogRow(EntityType entityType, Long entityId, Long version, Integer deleted) {
+        this(entityType, entityId, version, deleted == 1);
+    }
+}
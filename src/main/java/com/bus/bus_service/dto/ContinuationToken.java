@@ -0,0 +1,45 @@
+package com.bus.bus_service.dto;
+
+import com.bus.bus_service.exceptions.InvalidContinuationTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position of the last element of a keyset page. The client only sees the encoded (opaque) form.
+ * @param scope The listing the token was issued for, a token can only be used for the same listing
+ * @param id The id of the last element (routeId or busId)
+ * @param value The sort value of the last element, only used for sorted listings
+ * @param secondaryId The busId of the last element, only used for sorted listings
+ */
+public record ContinuationToken(String scope, Long id, Float value, Long secondaryId) {
+
+    private static final String SEPARATOR = "|";
+
+    public ContinuationToken(String scope, Long id) {
+        this(scope, id, null, null);
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, scope, String.valueOf(id),
+            value == null ? "" : Float.toString(value),
+            secondaryId == null ? "" : secondaryId.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ContinuationToken decode(String token, String expectedScope) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length != 4 || !Objects.equals(parts[0], expectedScope)) {
+                throw new InvalidContinuationTokenException(token);
+            }
+            return new ContinuationToken(parts[0], Long.valueOf(parts[1]),
+                parts[2].isEmpty() ? null : Float.valueOf(parts[2]),
+                parts[3].isEmpty() ? null : Long.valueOf(parts[3]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidContinuationTokenException(token);
+        }
+    }
+}
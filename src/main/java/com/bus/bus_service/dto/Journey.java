@@ -0,0 +1,17 @@
+package com.bus.bus_service.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A chain of route legs from one location to another. The average speed is the harmonic mean of the leg speeds,
+ * so every leg is weighted equally.
+ */
+public record Journey(
+    String from,
+    String to,
+    Integer transfers,
+    Float totalKmPrice,
+    Float averageSpeed,
+    List<JourneyLeg> legs
+) implements Serializable { }
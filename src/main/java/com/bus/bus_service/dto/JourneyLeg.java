@@ -0,0 +1,10 @@
+package com.bus.bus_service.dto;
+
+import java.io.Serializable;
+
+public record JourneyLeg(
+    Long routeId,
+    String start,
+    String destination,
+    Bus bus
+) implements Serializable { }
@@ -0,0 +1,14 @@
+package com.bus.bus_service.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Dense cost matrix, costs.get(i).get(j) is the cost of the best journey from stations[i] to stations[j] or null
+ * if there is no journey
+ */
+public record JourneyMatrix(
+    List<String> stations,
+    String criteria,
+    List<List<Float>> costs
+) implements Serializable { }
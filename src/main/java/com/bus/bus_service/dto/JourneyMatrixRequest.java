@@ -0,0 +1,16 @@
+package com.bus.bus_service.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.io.Serializable;
+import java.util.List;
+
+public record JourneyMatrixRequest(
+    @NotEmpty(message = "stations cannot be empty")
+    @Size(max = 1000, message = "stations cannot contain more than 1000 locations")
+    List<@NotBlank(message = "stations cannot contain empty locations") String> stations,
+
+    String criteria
+) implements Serializable { }
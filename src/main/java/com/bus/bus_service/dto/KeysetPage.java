@@ -0,0 +1,15 @@
+package com.bus.bus_service.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated listing
+ * @param content The elements of the page
+ * @param next The position to continue from, null if there are no further elements
+ */
+public record KeysetPage<T>(List<T> content, ContinuationToken next) {
+
+    public static final String CONTINUATION_HEADER = "X-Continuation-Token";
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+}
@@ -0,0 +1,21 @@
+package com.bus.bus_service.dto;
+
+import java.util.List;
+
+/**
+ * The changes of the route network since a version, compacted to the latest state of every changed route and bus
+ * @param complete True if the response contains all routes and buses, which replace the copy of the client
+ * @param routes The created or changed routes in their current state
+ * @param deletedRouteIds The ids of the deleted routes
+ * @param buses The created or changed buses in their current state
+ * @param deletedBusIds The ids of the deleted buses
+ * @param token The token for the next request, it covers all changes contained in this response
+ */
+public record NetworkChanges(
+    boolean complete,
+    List<Route> routes,
+    List<Long> deletedRouteIds,
+    List<Bus> buses,
+    List<Long> deletedBusIds,
+    String token
+) { }
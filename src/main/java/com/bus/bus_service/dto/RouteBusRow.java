@@ -0,0 +1,15 @@
+package com.bus.bus_service.dto;
+
+/**
+ * A single (route, bus) combination as returned by the projection queries of the RouteRepository
+ */
+public record RouteBusRow(
+    Long routeId,
+    String start,
+    String destination,
+    Long busId,
+    Integer busNumber,
+    String name,
+    Float kmPrice,
+    Float averageSpeed
+) { }
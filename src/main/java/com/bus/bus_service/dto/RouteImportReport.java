@@ -0,0 +1,21 @@
+package com.bus.bus_service.dto;
+
+import java.util.List;
+
+/**
+ * The result of a route import
+ * @param processedLines The amount of processed data lines (without header and empty lines)
+ * @param importedRoutes The amount of created routes
+ * @param failedLines The amount of lines that could not be imported
+ * @param errors The errors of the failed lines, limited to the first errors
+ * @param errorsTruncated Whether more lines failed than errors are listed
+ */
+public record RouteImportReport(
+    long processedLines,
+    long importedRoutes,
+    long failedLines,
+    List<LineError> errors,
+    boolean errorsTruncated
+) {
+    public record LineError(long line, String error) { }
+}
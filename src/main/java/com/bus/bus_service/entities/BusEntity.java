@@ -6,8 +6,11 @@ import java.util.List;
 
 @Entity
 public class BusEntity {
+    // Pooled sequence (same sequence and increment as the previous AUTO mapping), so inserts in a batch
+    // only need a sequence round trip for every 50 ids
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bus_seq")
+    @SequenceGenerator(name = "bus_seq", sequenceName = "bus_entity_seq", allocationSize = 50)
     private Long busId;
     @Column(unique = true)
     private Integer busNumber;
@@ -0,0 +1,56 @@
+package com.bus.bus_service.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * One changed route or bus. All changes of a transaction share the version the transaction got from the
+ * {@link ChangeLogVersionEntity}.
+ */
+@Entity
+@Table(name = "change_log", indexes = @Index(name = "idx_change_log_version", columnList = "version"))
+public class ChangeLogEntity {
+
+    public enum EntityType {
+        ROUTE,
+        BUS
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "change_log_seq")
+    @SequenceGenerator(name = "change_log_seq", sequenceName = "change_log_seq", allocationSize = 50)
+    private Long changeId;
+    private long version;
+    @Enumerated(EnumType.STRING)
+    private EntityType entityType;
+    private Long entityId;
+    private boolean deleted;
+
+    public ChangeLogEntity(){}
+
+    public ChangeLogEntity(long version, EntityType entityType, Long entityId, boolean deleted) {
+        this.version = version;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.deleted = deleted;
+    }
+
+    public Long getChangeId() {
+        return changeId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+}
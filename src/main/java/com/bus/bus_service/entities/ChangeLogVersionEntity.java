@@ -0,0 +1,31 @@
+package com.bus.bus_service.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * The single row holding the latest version of the change log. A writing transaction increments it and keeps the
+ * row lock until its commit, so the versions become visible in ascending order and a reader never skips a version
+ * which is committed later.
+ */
+@Entity
+@Table(name = "change_log_version")
+public class ChangeLogVersionEntity {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+    private long version;
+
+    public ChangeLogVersionEntity(){}
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
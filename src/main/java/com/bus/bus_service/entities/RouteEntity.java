@@ -6,9 +6,14 @@ import java.util.List;
 
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_route_start", columnList = "start"),
+        @Index(name = "idx_route_destination", columnList = "destination")
+})
 public class RouteEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "route_seq")
+    @SequenceGenerator(name = "route_seq", sequenceName = "route_entity_seq", allocationSize = 50)
     private Long routeId;
     private String start;
     private String destination;
@@ -16,7 +21,8 @@ public class RouteEntity {
     @JoinTable(
             name = "route_bus",
             joinColumns = @JoinColumn(name = "route_id"),
-            inverseJoinColumns = @JoinColumn(name = "bus_id")
+            inverseJoinColumns = @JoinColumn(name = "bus_id"),
+            uniqueConstraints = @UniqueConstraint(name = "uk_route_bus", columnNames = {"route_id", "bus_id"})
     )
     private List<BusEntity> buses;
 
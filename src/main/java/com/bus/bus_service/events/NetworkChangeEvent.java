@@ -0,0 +1,23 @@
+package com.bus.bus_service.events;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published by the services after routes or buses were written
+ * @param type What kind of change happened
+ * @param ids The ids of the changed routes or buses
+ */
+public record NetworkChangeEvent(Type type, Collection<Long> ids) {
+
+    public enum Type {
+        ROUTES_SAVED,
+        ROUTES_DELETED,
+        BUSES_SAVED,
+        BUSES_DELETED
+    }
+
+    public static NetworkChangeEvent of(Type type, Long id) {
+        return new NetworkChangeEvent(type, List.of(id));
+    }
+}
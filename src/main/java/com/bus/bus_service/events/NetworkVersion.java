@@ -0,0 +1,26 @@
+package com.bus.bus_service.events;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the route network, incremented after every committed route or bus change. Results read at one version
+ * are valid as long as the version does not change.
+ */
+@Component
+public class NetworkVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    // incremented after the commit, so a result read at the new version can not contain data from before the change
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNetworkChange(NetworkChangeEvent event) {
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,19 @@
+package com.bus.bus_service.exceptions;
+
+public class BusNumberNotContainedException extends RuntimeException {
+    private Long busNumber;
+    private Long routeId;
+    public BusNumberNotContainedException(Long routeId, Long busNumber) {
+        super("The route with the id \"" + routeId + "\" does not contain the bus with the bus number \"" + busNumber + "\"");
+        this.busNumber = busNumber;
+        this.routeId = routeId;
+    }
+
+    public Long getBusNumber() {
+        return busNumber;
+    }
+
+    public Long getRouteId() {
+        return routeId;
+    }
+}
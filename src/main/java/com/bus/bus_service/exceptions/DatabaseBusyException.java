@@ -0,0 +1,15 @@
+package com.bus.bus_service.exceptions;
+
+import java.time.Duration;
+
+public class DatabaseBusyException extends RuntimeException {
+    private Duration timeout;
+    public DatabaseBusyException(Duration timeout) {
+        super("No database connection became available within " + timeout.toMillis() + " ms");
+        this.timeout = timeout;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
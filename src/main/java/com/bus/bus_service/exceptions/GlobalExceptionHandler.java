@@ -103,4 +103,51 @@ public class GlobalExceptionHandler {
         // Status code 409 = conflict status code
         return ResponseEntity.status(409).body(responseBody);
     }
+
+    @ExceptionHandler(BusNumberNotContainedException.class)
+    public ResponseEntity<Map<String, Object>> handleBusNumberNotContained(BusNumberNotContainedException e,
+                                                                           HttpServletRequest request) {
+        routelogger.warn("{} request failed (404) - \"{}\" - Route id \"{}\" does not contain the bus with bus number \"{}\"",
+            request.getMethod(), request.getRequestURI(), e.getRouteId(), e.getBusNumber());
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("error", "The specified route does not contain the specified bus");
+        responseBody.put("route_Id", e.getRouteId());
+        responseBody.put("bus_Number", e.getBusNumber());
+        return ResponseEntity.status(404).body(responseBody);
+    }
+
+    @ExceptionHandler(InvalidContinuationTokenException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidContinuationToken(InvalidContinuationTokenException e,
+                                                                              HttpServletRequest request) {
+        routelogger.warn("{} request failed (400) - \"{}\" - Invalid continuation token \"{}\"",
+            request.getMethod(), request.getRequestURI(), e.getToken());
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("error", "The continuation token is invalid");
+        responseBody.put("continuation", e.getToken());
+
+        return ResponseEntity.status(400).body(responseBody);
+    }
+
+    @ExceptionHandler(JourneyNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleJourneyNotFound(JourneyNotFoundException e, HttpServletRequest request) {
+        routelogger.warn("{} request failed (404) - \"{}\" - No journey from \"{}\" to \"{}\" found",
+            request.getMethod(), request.getRequestURI(), e.getFrom(), e.getTo());
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("error", "No journey between these locations found");
+        responseBody.put("from", e.getFrom());
+        responseBody.put("to", e.getTo());
+
+        return ResponseEntity.status(404).body(responseBody);
+    }
+
+    @ExceptionHandler(DatabaseBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleDatabaseBusy(DatabaseBusyException e, HttpServletRequest request) {
+        routelogger.warn("{} request failed (503) - \"{}\" - No database connection available within {} ms",
+            request.getMethod(), request.getRequestURI(), e.getTimeout().toMillis());
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("error", "The database is busy, please retry later");
+        responseBody.put("timeout_ms", e.getTimeout().toMillis());
+
+        return ResponseEntity.status(503).body(responseBody);
+    }
 }
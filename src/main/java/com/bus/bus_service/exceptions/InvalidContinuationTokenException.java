@@ -0,0 +1,13 @@
+package com.bus.bus_service.exceptions;
+
+public class InvalidContinuationTokenException extends RuntimeException {
+    private String token;
+    public InvalidContinuationTokenException(String token) {
+        super("The continuation token \"" + token + "\" is invalid");
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+}
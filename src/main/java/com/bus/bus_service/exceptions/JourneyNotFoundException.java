@@ -0,0 +1,19 @@
+package com.bus.bus_service.exceptions;
+
+public class JourneyNotFoundException extends RuntimeException {
+    private String from;
+    private String to;
+    public JourneyNotFoundException(String from, String to) {
+        super("No journey from " + from + " to " + to + " found");
+        this.from = from;
+        this.to = to;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+}
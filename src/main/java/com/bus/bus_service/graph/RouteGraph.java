@@ -0,0 +1,125 @@
+package com.bus.bus_service.graph;
+
+import com.bus.bus_service.dto.Bus;
+
+import java.util.Map;
+
+/**
+ * Immutable compressed sparse row representation of the route network. Every (route, bus) combination is an edge
+ * from the route start to the route destination. The edges of station s are the indices
+ * {@code firstEdge(s) <= e < endEdge(s)}, ordered by ascending price. Bus number and name live in a separate bus
+ * table, so only the values needed for searching are stored per edge. The graphs are compiled by a
+ * {@link RouteGraphBuilder}, consecutive graphs share their edge arrays, so the edge indices of a graph are not
+ * necessarily dense.
+ */
+public class RouteGraph {
+
+    /**
+     * A route of the graph model with interned stations and the ids of its buses
+     */
+    public record RouteEdges(int start, int destination, long[] busIds) { }
+
+    /**
+     * A bus of the graph model
+     */
+    public record BusInfo(int busNumber, String name, float kmPrice, float averageSpeed) { }
+
+    private final StationDictionary stations;
+    private final String[] stationNames;
+    private final int[] firstEdges;
+    private final int[] endEdges;
+    private final int edgeCount;
+    private final int[] targets;
+    private final long[] routeIds;
+    private final int[] busIndices;
+    private final float[] kmPrices;
+    private final float[] averageSpeeds;
+    private final long[] busIds;
+    private final int[] busNumbers;
+    private final String[] busNames;
+
+    RouteGraph(StationDictionary stations, String[] stationNames, int[] firstEdges, int[] endEdges, int edgeCount,
+               int[] targets, long[] routeIds, int[] busIndices, float[] kmPrices, float[] averageSpeeds, long[] busIds,
+               int[] busNumbers, String[] busNames) {
+        this.stations = stations;
+        this.stationNames = stationNames;
+        this.firstEdges = firstEdges;
+        this.endEdges = endEdges;
+        this.edgeCount = edgeCount;
+        this.targets = targets;
+        this.routeIds = routeIds;
+        this.busIndices = busIndices;
+        this.kmPrices = kmPrices;
+        this.averageSpeeds = averageSpeeds;
+        this.busIds = busIds;
+        this.busNumbers = busNumbers;
+        this.busNames = busNames;
+    }
+
+    public static RouteGraph empty(StationDictionary stations) {
+        return new RouteGraphBuilder(stations).build();
+    }
+
+    /**
+     * Builds the graph of the routes and buses at once. Buses that are missing in the bus table are skipped.
+     */
+    public static RouteGraph build(StationDictionary stations, Map<Long, RouteEdges> routes, Map<Long, BusInfo> buses) {
+        RouteGraphBuilder builder = new RouteGraphBuilder(stations);
+        buses.forEach(builder::putBus);
+        routes.forEach(builder::putRoute);
+        return builder.build();
+    }
+
+    /**
+     * Returns the id of the station or -1 if the station is not part of the graph
+     */
+    public int stationId(String name) {
+        int id = stations.idOf(name);
+        return id < stationNames.length ? id : -1;
+    }
+
+    public String stationName(int station) {
+        return stationNames[station];
+    }
+
+    public int stationCount() {
+        return stationNames.length;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public int firstEdge(int station) {
+        return firstEdges[station];
+    }
+
+    public int endEdge(int station) {
+        return endEdges[station];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public long routeId(int edge) {
+        return routeIds[edge];
+    }
+
+    public float kmPrice(int edge) {
+        return kmPrices[edge];
+    }
+
+    public float averageSpeed(int edge) {
+        return averageSpeeds[edge];
+    }
+
+    public long busId(int edge) {
+        return busIds[busIndices[edge]];
+    }
+
+    public Bus bus(int edge) {
+        int busIndex = busIndices[edge];
+        return new Bus(busIds[busIndex], busNumbers[busIndex], busNames[busIndex], kmPrices[edge], averageSpeeds[edge]);
+    }
+}
@@ -0,0 +1,315 @@
+package com.bus.bus_service.graph;
+
+import com.bus.bus_service.graph.RouteGraph.BusInfo;
+import com.bus.bus_service.graph.RouteGraph.RouteEdges;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mutable model of the route network which compiles {@link RouteGraph} snapshots incrementally. Every change marks
+ * the start stations of the routes it affects, {@link #build()} only recompiles the edges of these stations and
+ * appends them behind the edges of the previous snapshot. The edges of all other stations stay where they are, so
+ * they keep their offsets and are neither copied nor sorted again. The edge arrays are shared with the previous
+ * snapshots, which never look behind their own edges. Full arrays are copied into larger ones and only compacted,
+ * which changes the offsets of all stations, once the gaps left by recompiled stations outnumber the edges.
+ * The builder is not thread-safe.
+ */
+public class RouteGraphBuilder {
+
+    private final StationDictionary stations;
+    private final Map<Long, RouteEdges> routes = new HashMap<>();
+    private final Map<Long, BusInfo> buses = new HashMap<>();
+    // the routes starting at a station and the routes of a bus, to find the stations affected by a change
+    private final Map<Integer, Set<Long>> routesByStart = new HashMap<>();
+    private final Map<Long, Set<Long>> routesByBus = new HashMap<>();
+    // the slot of a bus in the bus table, stable as long as the bus exists, so unchanged edges stay valid
+    private final Map<Long, Integer> busSlots = new HashMap<>();
+    private final Deque<Integer> freeBusSlots = new ArrayDeque<>();
+    private int busSlotCount;
+
+    private final Set<Integer> changedStations = new HashSet<>();
+    private boolean busTableChanged = true;
+
+    // edge storage of the latest snapshot, edges at or behind usedEdges are not visible to any snapshot
+    private int[] firstEdges = new int[0];
+    private int[] endEdges = new int[0];
+    private int[] targets = new int[0];
+    private long[] routeIds = new long[0];
+    private int[] busIndices = new int[0];
+    private float[] kmPrices = new float[0];
+    private float[] averageSpeeds = new float[0];
+    private int usedEdges;
+    private int edgeCount;
+    private long[] busIds = new long[0];
+    private int[] busNumbers = new int[0];
+    private String[] busNames = new String[0];
+    private RouteGraph graph;
+
+    public RouteGraphBuilder(StationDictionary stations) {
+        this.stations = stations;
+    }
+
+    /**
+     * Adds or replaces the route. Bus ids without a known bus are skipped until the bus is added.
+     */
+    public void putRoute(long routeId, RouteEdges route) {
+        removeRoute(routeId);
+        routes.put(routeId, route);
+        routesByStart.computeIfAbsent(route.start(), start -> new HashSet<>()).add(routeId);
+        for (long busId : route.busIds()) {
+            routesByBus.computeIfAbsent(busId, bus -> new HashSet<>()).add(routeId);
+        }
+        changedStations.add(route.start());
+    }
+
+    public void removeRoute(long routeId) {
+        RouteEdges route = routes.remove(routeId);
+        if (route == null) {
+            return;
+        }
+        removeFromIndex(routesByStart, route.start(), routeId);
+        for (long busId : route.busIds()) {
+            removeFromIndex(routesByBus, busId, routeId);
+        }
+        changedStations.add(route.start());
+    }
+
+    /**
+     * Adds or replaces the bus. Only the edges of its routes are recompiled, and only if its price or speed changed.
+     */
+    public void putBus(long busId, BusInfo bus) {
+        BusInfo previous = buses.put(busId, bus);
+        if (bus.equals(previous)) {
+            return;
+        }
+        busTableChanged = true;
+        if (previous == null) {
+            busSlots.put(busId, freeBusSlots.isEmpty() ? busSlotCount++ : freeBusSlots.pop());
+            markRoutesOfBus(busId);
+        } else if (previous.kmPrice() != bus.kmPrice() || previous.averageSpeed() != bus.averageSpeed()) {
+            markRoutesOfBus(busId);
+        }
+    }
+
+    /**
+     * Replaces the bus if it is known, buses without routes are not part of the graph
+     */
+    public void replaceBus(long busId, BusInfo bus) {
+        if (buses.containsKey(busId)) {
+            putBus(busId, bus);
+        }
+    }
+
+    public void removeBus(long busId) {
+        if (buses.remove(busId) == null) {
+            return;
+        }
+        // all edges of the bus are recompiled with this build, so its slot can be reused
+        freeBusSlots.push(busSlots.remove(busId));
+        busTableChanged = true;
+        markRoutesOfBus(busId);
+    }
+
+    public void clear() {
+        routes.clear();
+        buses.clear();
+        routesByStart.clear();
+        routesByBus.clear();
+        busSlots.clear();
+        freeBusSlots.clear();
+        busSlotCount = 0;
+        changedStations.clear();
+        busTableChanged = true;
+        firstEdges = new int[0];
+        endEdges = new int[0];
+        targets = new int[0];
+        routeIds = new long[0];
+        busIndices = new int[0];
+        kmPrices = new float[0];
+        averageSpeeds = new float[0];
+        usedEdges = 0;
+        edgeCount = 0;
+        graph = null;
+    }
+
+    /**
+     * Returns a snapshot of the current network. Only the edges of the stations changed since the previous build are
+     * compiled, in O(d log d) for a station with d edges.
+     */
+    public RouteGraph build() {
+        String[] stationNames = stations.toArray();
+        if (graph != null && changedStations.isEmpty() && !busTableChanged
+            && stationNames.length == graph.stationCount()) {
+            return graph;
+        }
+        // the previous snapshot keeps its offsets, new stations start without edges
+        firstEdges = Arrays.copyOf(firstEdges, stationNames.length);
+        endEdges = Arrays.copyOf(endEdges, stationNames.length);
+
+        int changedEdges = 0;
+        for (int station : changedStations) {
+            edgeCount -= endEdges[station] - firstEdges[station];
+            firstEdges[station] = 0;
+            endEdges[station] = 0;
+            for (long routeId : routesByStart.getOrDefault(station, Set.of())) {
+                changedEdges += countKnownBuses(routes.get(routeId).busIds());
+            }
+        }
+        int requiredEdges = usedEdges + changedEdges;
+        if (requiredEdges > targets.length) {
+            if (usedEdges - edgeCount > edgeCount) {
+                // more gaps than edges, all stations get new offsets
+                compact((edgeCount + changedEdges) * 3 / 2);
+            } else {
+                // a fresh builder is sized exactly, later builds keep room for half of the edges again
+                grow(usedEdges == 0 ? requiredEdges : requiredEdges * 3 / 2);
+            }
+        }
+        for (int station : changedStations) {
+            compileStation(station);
+        }
+        edgeCount += changedEdges;
+        changedStations.clear();
+
+        if (busTableChanged) {
+            busIds = new long[busSlotCount];
+            busNumbers = new int[busSlotCount];
+            busNames = new String[busSlotCount];
+            busSlots.forEach((busId, slot) -> {
+                BusInfo bus = buses.get(busId);
+                busIds[slot] = busId;
+                busNumbers[slot] = bus.busNumber();
+                busNames[slot] = bus.name();
+            });
+            busTableChanged = false;
+        }
+        graph = new RouteGraph(stations, stationNames, firstEdges, endEdges, edgeCount, targets, routeIds, busIndices,
+            kmPrices, averageSpeeds, busIds, busNumbers, busNames);
+        return graph;
+    }
+
+    private void compileStation(int station) {
+        int from = usedEdges;
+        for (long routeId : routesByStart.getOrDefault(station, Set.of())) {
+            RouteEdges route = routes.get(routeId);
+            for (long busId : route.busIds()) {
+                BusInfo bus = buses.get(busId);
+                if (bus == null) {
+                    continue;
+                }
+                targets[usedEdges] = route.destination();
+                routeIds[usedEdges] = routeId;
+                busIndices[usedEdges] = busSlots.get(busId);
+                kmPrices[usedEdges] = bus.kmPrice();
+                averageSpeeds[usedEdges] = bus.averageSpeed();
+                usedEdges++;
+            }
+        }
+        sortByPrice(from, usedEdges);
+        firstEdges[station] = from;
+        endEdges[station] = usedEdges;
+    }
+
+    /**
+     * Copies the used part of the edge arrays into larger arrays, all stations keep their offsets
+     */
+    private void grow(int capacity) {
+        targets = Arrays.copyOf(targets, capacity);
+        routeIds = Arrays.copyOf(routeIds, capacity);
+        busIndices = Arrays.copyOf(busIndices, capacity);
+        kmPrices = Arrays.copyOf(kmPrices, capacity);
+        averageSpeeds = Arrays.copyOf(averageSpeeds, capacity);
+    }
+
+    /**
+     * Copies the edges of the snapshot into new arrays without the gaps left by recompiled stations
+     */
+    private void compact(int capacity) {
+        int[] newTargets = new int[capacity];
+        long[] newRouteIds = new long[capacity];
+        int[] newBusIndices = new int[capacity];
+        float[] newKmPrices = new float[capacity];
+        float[] newAverageSpeeds = new float[capacity];
+        int next = 0;
+        for (int station = 0; station < firstEdges.length; station++) {
+            int first = firstEdges[station];
+            int degree = endEdges[station] - first;
+            System.arraycopy(targets, first, newTargets, next, degree);
+            System.arraycopy(routeIds, first, newRouteIds, next, degree);
+            System.arraycopy(busIndices, first, newBusIndices, next, degree);
+            System.arraycopy(kmPrices, first, newKmPrices, next, degree);
+            System.arraycopy(averageSpeeds, first, newAverageSpeeds, next, degree);
+            firstEdges[station] = next;
+            endEdges[station] = next + degree;
+            next += degree;
+        }
+        targets = newTargets;
+        routeIds = newRouteIds;
+        busIndices = newBusIndices;
+        kmPrices = newKmPrices;
+        averageSpeeds = newAverageSpeeds;
+        usedEdges = next;
+    }
+
+    /**
+     * Sorts the edges by ascending price: sorts their indices in O(n log n) and permutes the arrays once
+     */
+    private void sortByPrice(int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        Integer[] order = new Integer[to - from];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = from + i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(kmPrices[a], kmPrices[b]));
+
+        int[] sortedTargets = new int[order.length];
+        long[] sortedRouteIds = new long[order.length];
+        int[] sortedBusIndices = new int[order.length];
+        float[] sortedKmPrices = new float[order.length];
+        float[] sortedAverageSpeeds = new float[order.length];
+        for (int i = 0; i < order.length; i++) {
+            int edge = order[i];
+            sortedTargets[i] = targets[edge];
+            sortedRouteIds[i] = routeIds[edge];
+            sortedBusIndices[i] = busIndices[edge];
+            sortedKmPrices[i] = kmPrices[edge];
+            sortedAverageSpeeds[i] = averageSpeeds[edge];
+        }
+        System.arraycopy(sortedTargets, 0, targets, from, order.length);
+        System.arraycopy(sortedRouteIds, 0, routeIds, from, order.length);
+        System.arraycopy(sortedBusIndices, 0, busIndices, from, order.length);
+        System.arraycopy(sortedKmPrices, 0, kmPrices, from, order.length);
+        System.arraycopy(sortedAverageSpeeds, 0, averageSpeeds, from, order.length);
+    }
+
+    private void markRoutesOfBus(long busId) {
+        for (long routeId : routesByBus.getOrDefault(busId, Set.of())) {
+            changedStations.add(routes.get(routeId).start());
+        }
+    }
+
+    private int countKnownBuses(long[] routeBusIds) {
+        int count = 0;
+        for (long busId : routeBusIds) {
+            if (buses.containsKey(busId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static <K> void removeFromIndex(Map<K, Set<Long>> index, K key, long routeId) {
+        Set<Long> routeIds = index.get(key);
+        if (routeIds != null && routeIds.remove(routeId) && routeIds.isEmpty()) {
+            index.remove(key);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.bus.bus_service.graph;
+
+import com.bus.bus_service.dto.RouteBusRow;
+import com.bus.bus_service.events.NetworkChangeEvent;
+import com.bus.bus_service.graph.RouteGraph.BusInfo;
+import com.bus.bus_service.graph.RouteGraph.RouteEdges;
+import com.bus.bus_service.repository.BusRepository;
+import com.bus.bus_service.repository.RouteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the route network. It keeps a small mutable model of all routes and buses with interned
+ * station names and publishes an immutable {@link RouteGraph} after every change, so queries never touch the
+ * database. The index is loaded on startup and updated after every committed route or bus write; only the changed
+ * routes or buses are reloaded and only the edges of the stations they start from are recompiled.
+ */
+@Component
+public class RouteNetworkIndex {
+
+    private final RouteRepository routeRepository;
+    private final BusRepository busRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    // the model is only changed while holding the lock, a ReentrantLock instead of synchronized, because the updates
+    // query the database and a virtual thread blocking inside synchronized would pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StationDictionary stations = new StationDictionary();
+    private final RouteGraphBuilder builder = new RouteGraphBuilder(stations);
+    private volatile RouteGraph graph = RouteGraph.empty(stations);
+
+    private final Logger logger = LoggerFactory.getLogger(RouteNetworkIndex.class);
+
+    public RouteNetworkIndex(RouteRepository routeRepository, BusRepository busRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.routeRepository = routeRepository;
+        this.busRepository = busRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Returns the current snapshot of the route network
+     */
+    public RouteGraph getGraph() {
+        return graph;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.lock();
+        try {
+            builder.clear();
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<RouteBusRow> rows = routeRepository.streamAllRouteBusRows()) {
+                    putRoutes(rows.iterator());
+                }
+            });
+            publish();
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Route network index built - {} stations, {} connections", graph.stationCount(), graph.edgeCount());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNetworkChange(NetworkChangeEvent event) {
+        lock.lock();
+        try {
+            switch (event.type()) {
+                case ROUTES_SAVED -> {
+                    event.ids().forEach(builder::removeRoute);
+                    putRoutes(routeRepository.findRouteBusRowsByRouteIdIn(event.ids()).iterator());
+                }
+                case ROUTES_DELETED -> event.ids().forEach(builder::removeRoute);
+                case BUSES_SAVED -> busRepository.findAllById(event.ids()).forEach(bus ->
+                    builder.replaceBus(bus.getBusId(),
+                        new BusInfo(bus.getBusNumber(), bus.getName(), bus.getKmPrice(), bus.getAverageSpeed())));
+                case BUSES_DELETED -> event.ids().forEach(builder::removeBus);
+            }
+            publish();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the rows are ordered by route id, so the rows of a route are consecutive
+    private void putRoutes(Iterator<RouteBusRow> rows) {
+        RouteBusRow first = null;
+        LongStream.Builder busIds = LongStream.builder();
+        while (rows.hasNext()) {
+            RouteBusRow row = rows.next();
+            if (first != null && !first.routeId().equals(row.routeId())) {
+                putRoute(first, busIds.build().toArray());
+                busIds = LongStream.builder();
+            }
+            if (first == null || !first.routeId().equals(row.routeId())) {
+                first = row;
+            }
+            if (row.busId() != null) {
+                busIds.add(row.busId());
+                builder.putBus(row.busId(),
+                    new BusInfo(row.busNumber(), row.name(), row.kmPrice(), row.averageSpeed()));
+            }
+        }
+        if (first != null) {
+            putRoute(first, busIds.build().toArray());
+        }
+    }
+
+    private void putRoute(RouteBusRow row, long[] busIds) {
+        builder.putRoute(row.routeId(),
+            new RouteEdges(stations.intern(row.start()), stations.intern(row.destination()), busIds));
+    }
+
+    private void publish() {
+        graph = builder.build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.bus.bus_service.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps station names to dense int ids, so the route graph stores every name only once. Ids are never reused or
+ * removed; stations that are no longer part of any route just have no edges.
+ */
+public class StationDictionary {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Returns the id of the station, assigning the next free id to unknown stations
+     */
+    public synchronized int intern(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the station or -1 if the station is unknown
+     */
+    public int idOf(String name) {
+        return ids.getOrDefault(name, -1);
+    }
+
+    public synchronized String nameOf(int id) {
+        return names.get(id);
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    synchronized String[] toArray() {
+        return names.toArray(String[]::new);
+    }
+}
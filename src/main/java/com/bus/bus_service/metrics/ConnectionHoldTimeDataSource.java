@@ -0,0 +1,70 @@
+package com.bus.bus_service.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Measures how long connections of the pool are held, from getConnection until close. The hold times are added up
+ * per thread, the connections are not changed otherwise.
+ */
+public class ConnectionHoldTimeDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<long[]> HOLD_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    public ConnectionHoldTimeDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(super.getConnection(username, password));
+    }
+
+    public static void reset() {
+        HOLD_NANOS.get()[0] = 0;
+    }
+
+    /**
+     * Returns the hold time of the connections closed by the current thread since the last reset
+     */
+    public static long getHoldNanos() {
+        return HOLD_NANOS.get()[0];
+    }
+
+    private static Connection track(Connection connection) {
+        long acquired = System.nanoTime();
+        boolean[] closed = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(ConnectionHoldTimeDataSource.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "close":
+                        if (!closed[0]) {
+                            closed[0] = true;
+                            HOLD_NANOS.get()[0] += System.nanoTime() - acquired;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+}
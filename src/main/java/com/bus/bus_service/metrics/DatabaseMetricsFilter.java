@@ -0,0 +1,60 @@
+package com.bus.bus_service.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the database usage of every request, tagged like "http.server.requests": the number of SQL statements
+ * as "http.server.requests.statements" and the time JDBC connections were held as
+ * "http.server.requests.connection.hold". Asynchronously written responses (the route export) are not included.
+ */
+// runs before the response cache, so cached responses are recorded as requests without statements
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class DatabaseMetricsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    public DatabaseMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        SqlStatementCounter.reset();
+        ConnectionHoldTimeDataSource.reset();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            Tags tags = Tags.of("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString(),
+                "status", String.valueOf(response.getStatus()));
+            DistributionSummary.builder("http.server.requests.statements")
+                .description("SQL statements per request")
+                .baseUnit("statements")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(SqlStatementCounter.getCount());
+            Timer.builder("http.server.requests.connection.hold")
+                .description("Time JDBC connections were held per request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(ConnectionHoldTimeDataSource.getHoldNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
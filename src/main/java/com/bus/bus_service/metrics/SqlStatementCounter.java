@@ -0,0 +1,39 @@
+package com.bus.bus_service.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the SQL statements Hibernate prepares, per thread and in total. The statements are not changed.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+    private static final LongAdder TOTAL_COUNT = new LongAdder();
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        TOTAL_COUNT.increment();
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    /**
+     * Returns the statements of the current thread since the last reset
+     */
+    public static long getCount() {
+        return COUNT.get()[0];
+    }
+
+    /**
+     * Returns the statements of all threads since the start of the application
+     */
+    public static long getTotalCount() {
+        return TOTAL_COUNT.sum();
+    }
+}
@@ -1,14 +1,28 @@
 package com.bus.bus_service.repository;
 
+import com.bus.bus_service.dto.Bus;
 import com.bus.bus_service.entities.BusEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface BusRepository extends JpaRepository<BusEntity, Long> {
     boolean existsByBusNumber(Integer busNumber);
     Optional<BusEntity> findBusEntityByBusNumber(Integer busNumber);
+    List<BusEntity> findAllByBusNumberIn(Collection<Integer> busNumbers);
+    @Query("select b.busNumber from BusEntity b where b.busNumber in :busNumbers")
+    List<Integer> findExistingBusNumbers(@Param("busNumbers") Collection<Integer> busNumbers);
     void deleteByBusNumber(Integer busNumber);
+    @Query("select new com.bus.bus_service.dto.Bus(b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from BusEntity b order by b.busId")
+    List<Bus> findAllBuses();
+    @Query("select new com.bus.bus_service.dto.Bus(b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from BusEntity b where b.busId > :busId order by b.busId")
+    List<Bus> findBusesAfter(@Param("busId") Long busId, Limit limit);
+    @Query("select new com.bus.bus_service.dto.Bus(b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from BusEntity b where b.busId in :busIds order by b.busId")
+    List<Bus> findBusesByBusIdIn(@Param("busIds") Collection<Long> busIds);
 
 }
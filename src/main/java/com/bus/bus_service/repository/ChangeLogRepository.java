@@ -0,0 +1,39 @@
+package com.bus.bus_service.repository;
+
+import com.bus.bus_service.dto.ChangeLogRow;
+import com.bus.bus_service.entities.ChangeLogEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntity, Long> {
+
+    // Locks the version row until the end of the transaction, concurrent writers wait for each other's commit
+    @Modifying
+    @Query(value = "update change_log_version set version = version + 1 where id = 1", nativeQuery = true)
+    int incrementVersion();
+
+    @Modifying
+    @Query(value = "insert into change_log_version (id, version) select 1, 0 where not exists "
+        + "(select 1 from change_log_version where id = 1)", nativeQuery = true)
+    int createVersion();
+
+    @Query("select v.version from ChangeLogVersionEntity v where v.id = 1")
+    Optional<Long> findVersion();
+
+    // The number of routes and buses in a single statement
+    @Query("select count(r) + (select count(b) from BusEntity b) from RouteEntity r")
+    long countNetwork();
+
+    // One row per route or bus changed after the version. Ids are never reused, so a deleted route or bus stays
+    // deleted and any deletion is its latest change.
+    @Query("select new com.bus.bus_service.dto.ChangeLogRow(c.entityType, c.entityId, max(c.version), "
+        + "max(case when c.deleted = true then 1 else 0 end)) from ChangeLogEntity c where c.version > :version "
+        + "group by c.entityType, c.entityId order by max(c.version), c.entityId")
+    List<ChangeLogRow> findChangesAfter(@Param("version") long version, Limit limit);
+}
@@ -2,17 +2,162 @@ package com.bus.bus_service.repository;
 
 
 import com.bus.bus_service.dto.Bus;
+import com.bus.bus_service.dto.RouteBusRow;
 import com.bus.bus_service.entities.BusEntity;
 import com.bus.bus_service.entities.RouteEntity;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface RouteRepository extends JpaRepository<RouteEntity, Long> {
+
+    // The listing methods fetch the bus list together with the routes in a single join,
+    // otherwise mapping the routes to DTOs triggers one extra query per route.
+    @Override
+    @EntityGraph(attributePaths = "buses")
+    List<RouteEntity> findAll();
+
+    @EntityGraph(attributePaths = "buses")
     List<RouteEntity> getRouteEntitiesByStart(String start);
+
+    @EntityGraph(attributePaths = "buses")
     List<RouteEntity> getRouteEntitiesByDestination(String destination);
+
+    @EntityGraph(attributePaths = "buses")
     List<RouteEntity> getRouteEntitiesByStartAndDestination(String start, String destination);
+
     List<RouteEntity> getRouteEntityByBusesContaining(List<BusEntity> buses);
+
+    // Single route_bus rows: adding or removing one bus does not load the bus list of the route,
+    // which Hibernate would delete and re-insert completely when flushing the changed bag.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "insert into route_bus (route_id, bus_id) select :routeId, :busId where not exists "
+        + "(select 1 from route_bus where route_id = :routeId and bus_id = :busId)", nativeQuery = true)
+    int insertRouteBus(@Param("routeId") Long routeId, @Param("busId") Long busId);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from route_bus where route_id = :routeId and bus_id = :busId", nativeQuery = true)
+    int deleteRouteBus(@Param("routeId") Long routeId, @Param("busId") Long busId);
+
+    // Keyset pagination: the ids of a page are selected first and the routes are fetched by id afterwards,
+    // a limit on a query which joins the bus list would be applied in memory by Hibernate.
+    @Query("select r.routeId from RouteEntity r where r.routeId > :after order by r.routeId")
+    List<Long> findRouteIdsAfter(@Param("after") Long after, Limit limit);
+
+    @Query("select distinct r.routeId from RouteEntity r join r.buses b where b.busId in :busIds")
+    List<Long> findRouteIdsByBusIdIn(@Param("busIds") Collection<Long> busIds);
+
+    @Query("select min(b.kmPrice) from RouteEntity r join r.buses b")
+    Optional<Float> findMinKmPrice();
+
+    @Query("select max(b.averageSpeed) from RouteEntity r join r.buses b")
+    Optional<Float> findMaxAverageSpeed();
+
+    @Query("select distinct r.routeId from RouteEntity r join r.buses b "
+        + "where b.kmPrice = :kmPrice and r.routeId > :after order by r.routeId")
+    List<Long> findRouteIdsWithKmPriceAfter(@Param("kmPrice") Float kmPrice, @Param("after") Long after, Limit limit);
+
+    @Query("select distinct r.routeId from RouteEntity r join r.buses b "
+        + "where b.averageSpeed = :averageSpeed and r.routeId > :after order by r.routeId")
+    List<Long> findRouteIdsWithAverageSpeedAfter(@Param("averageSpeed") Float averageSpeed, @Param("after") Long after,
+                                                 Limit limit);
+
+    // Sorted (route, bus) rows with the optional start and destination, used for sorting and as keyset pagination:
+    // only rows after the given (value, routeId, busId) position are returned.
+    @Query("select new com.bus.bus_service.dto.RouteBusRow(r.routeId, r.start, r.destination, "
+        + "b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from RouteEntity r join r.buses b "
+        + "where (:start is null or r.start = :start) and (:destination is null or r.destination = :destination) "
+        + "and (b.kmPrice > :kmPrice or (b.kmPrice = :kmPrice and (r.routeId > :routeId "
+        + "or (r.routeId = :routeId and b.busId > :busId)))) "
+        + "order by b.kmPrice, r.routeId, b.busId")
+    List<RouteBusRow> findRouteBusRowsByKmPriceAfter(@Param("start") String start,
+                                                     @Param("destination") String destination,
+                                                     @Param("kmPrice") Float kmPrice, @Param("routeId") Long routeId,
+                                                     @Param("busId") Long busId, Limit limit);
+
+    @Query("select new com.bus.bus_service.dto.RouteBusRow(r.routeId, r.start, r.destination, "
+        + "b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from RouteEntity r join r.buses b "
+        + "where (:start is null or r.start = :start) and (:destination is null or r.destination = :destination) "
+        + "and (b.averageSpeed < :averageSpeed or (b.averageSpeed = :averageSpeed and (r.routeId > :routeId "
+        + "or (r.routeId = :routeId and b.busId > :busId)))) "
+        + "order by b.averageSpeed desc, r.routeId, b.busId")
+    List<RouteBusRow> findRouteBusRowsByAverageSpeedAfter(@Param("start") String start,
+                                                          @Param("destination") String destination,
+                                                          @Param("averageSpeed") Float averageSpeed,
+                                                          @Param("routeId") Long routeId, @Param("busId") Long busId,
+                                                          Limit limit);
+
+    // Database-side variants of RouteService.filterRoutes: only the (route, bus) rows holding the minimum price
+    // or the maximum speed of all routes matching the (optional) start and destination are returned.
+    @Query("select new com.bus.bus_service.dto.RouteBusRow(r.routeId, r.start, r.destination, "
+        + "b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from RouteEntity r join r.buses b "
+        + "where (:start is null or r.start = :start) and (:destination is null or r.destination = :destination) "
+        + "and b.kmPrice = (select min(b2.kmPrice) from RouteEntity r2 join r2.buses b2 "
+        + "where (:start is null or r2.start = :start) and (:destination is null or r2.destination = :destination)) "
+        + "order by r.routeId, b.busId")
+    List<RouteBusRow> findRouteBusRowsWithMinKmPrice(@Param("start") String start,
+                                                     @Param("destination") String destination);
+
+    @Query("select new com.bus.bus_service.dto.RouteBusRow(r.routeId, r.start, r.destination, "
+        + "b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from RouteEntity r join r.buses b "
+        + "where (:start is null or r.start = :start) and (:destination is null or r.destination = :destination) "
+        + "and b.averageSpeed = (select max(b2.averageSpeed) from RouteEntity r2 join r2.buses b2 "
+        + "where (:start is null or r2.start = :start) and (:destination is null or r2.destination = :destination)) "
+        + "order by r.routeId, b.busId")
+    List<RouteBusRow> findRouteBusRowsWithMaxAverageSpeed(@Param("start") String start,
+                                                          @Param("destination") String destination);
+
+    // All (route, bus) rows ordered by routeId as a database cursor, routes without buses have a single row
+    // without bus values. The rows are plain values, so the persistence context does not grow while streaming.
+    @Query("select new com.bus.bus_service.dto.RouteBusRow(r.routeId, r.start, r.destination, "
+        + "b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from RouteEntity r left join r.buses b "
+        + "order by r.routeId, b.busId")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<RouteBusRow> streamAllRouteBusRows();
+
+    // Read-only projections of the GET endpoints: the (route, bus) rows are read as plain values ordered by routeId
+    // and assembled into Route DTOs in one pass, routes without buses have a single row without bus values.
+    @Query("select new com.bus.bus_service.dto.RouteBusRow(r.routeId, r.start, r.destination, "
+        + "b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from RouteEntity r left join r.buses b "
+        + "where r.routeId in :routeIds order by r.routeId, b.busId")
+    List<RouteBusRow> findRouteBusRowsByRouteIdIn(@Param("routeIds") Collection<Long> routeIds);
+
+    @Query("select new com.bus.bus_service.dto.RouteBusRow(r.routeId, r.start, r.destination, "
+        + "b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from RouteEntity r left join r.buses b "
+        + "order by r.routeId, b.busId")
+    List<RouteBusRow> findAllRouteBusRows();
+
+    @Query("select new com.bus.bus_service.dto.RouteBusRow(r.routeId, r.start, r.destination, "
+        + "b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from RouteEntity r left join r.buses b "
+        + "where r.start = :start order by r.routeId, b.busId")
+    List<RouteBusRow> findRouteBusRowsByStart(@Param("start") String start);
+
+    @Query("select new com.bus.bus_service.dto.RouteBusRow(r.routeId, r.start, r.destination, "
+        + "b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from RouteEntity r left join r.buses b "
+        + "where r.destination = :destination order by r.routeId, b.busId")
+    List<RouteBusRow> findRouteBusRowsByDestination(@Param("destination") String destination);
+
+    @Query("select new com.bus.bus_service.dto.RouteBusRow(r.routeId, r.start, r.destination, "
+        + "b.busId, b.busNumber, b.name, b.kmPrice, b.averageSpeed) from RouteEntity r left join r.buses b "
+        + "where r.start = :start and r.destination = :destination order by r.routeId, b.busId")
+    List<RouteBusRow> findRouteBusRowsByStartAndDestination(@Param("start") String start,
+                                                            @Param("destination") String destination);
 }
 
 
@@ -0,0 +1,98 @@
+package com.bus.bus_service.schema;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One-off cleanup for databases created before the unique constraint uk_route_bus of the route_bus join table. Until
+ * then a route could contain the same bus several times, and the schema update of Hibernate (ddl-auto=update) only
+ * logs the failure to create the constraint on a table with duplicate rows. The cleanup runs before the schema update
+ * and reduces every duplicate (route_id, bus_id) pair to a single row. It does nothing as long as the table does not
+ * exist and once the constraint exists.
+ */
+@Component
+public class RouteBusDeduplication implements InitializingBean {
+
+    static final String TABLE = "route_bus";
+    static final String CONSTRAINT = "uk_route_bus";
+
+    private final DataSource dataSource;
+
+    private final Logger logger = LoggerFactory.getLogger(RouteBusDeduplication.class);
+
+    public RouteBusDeduplication(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!exists(connection, "select count(*) from information_schema.tables "
+                    + "where lower(table_name) = ? and lower(table_schema) = lower(?)", TABLE)
+                || exists(connection, "select count(*) from information_schema.table_constraints "
+                    + "where lower(constraint_name) = ? and lower(constraint_schema) = lower(?)", CONSTRAINT)) {
+                return;
+            }
+            removeDuplicates(connection);
+        }
+    }
+
+    private void removeDuplicates(Connection connection) throws SQLException {
+        List<long[]> duplicates = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select route_id, bus_id from route_bus group by route_id, bus_id having count(*) > 1");
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                duplicates.add(new long[] { rows.getLong(1), rows.getLong(2) });
+            }
+        }
+        if (duplicates.isEmpty()) {
+            return;
+        }
+        // the join table has no key to tell the rows apart, so all rows of a pair are replaced by one
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement delete = connection.prepareStatement(
+                "delete from route_bus where route_id = ? and bus_id = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                 "insert into route_bus (route_id, bus_id) values (?, ?)")) {
+            for (long[] duplicate : duplicates) {
+                for (PreparedStatement statement : List.of(delete, insert)) {
+                    statement.setLong(1, duplicate[0]);
+                    statement.setLong(2, duplicate[1]);
+                    statement.addBatch();
+                }
+            }
+            delete.executeBatch();
+            insert.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        logger.warn("Removed the duplicate rows of {} route and bus pairs from {} before creating the constraint {}",
+            duplicates.size(), TABLE, CONSTRAINT);
+    }
+
+    private static boolean exists(Connection connection, String countQuery, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(countQuery)) {
+            statement.setString(1, name);
+            statement.setString(2, connection.getSchema());
+            try (ResultSet count = statement.executeQuery()) {
+                return count.next() && count.getLong(1) > 0;
+            }
+        }
+    }
+}
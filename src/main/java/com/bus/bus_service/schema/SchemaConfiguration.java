@@ -0,0 +1,15 @@
+package com.bus.bus_service.schema;
+
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SchemaConfiguration {
+
+    // Hibernate updates the schema while the EntityManagerFactory is created, so the cleanups have to run before
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor schemaCleanupDependency() {
+        return new EntityManagerFactoryDependsOnPostProcessor(RouteBusDeduplication.class);
+    }
+}
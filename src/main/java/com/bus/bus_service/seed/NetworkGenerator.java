@@ -0,0 +1,220 @@
+package com.bus.bus_service.seed;
+
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.entities.RouteEntity;
+import com.bus.bus_service.repository.BusRepository;
+import com.bus.bus_service.repository.RouteRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Generates synthetic bus networks. The same settings always generate the same network, either in memory
+ * (for benchmarks and unit tests) or written to the database in batched chunks (for seeding and integration tests).
+ * Seeding writes through the repositories without publishing change events, so the route network index has to be
+ * rebuilt afterwards; at startup this happens automatically.
+ */
+@Component
+public class NetworkGenerator {
+
+    static final int CHUNK_SIZE = 1000;
+
+    private static final String[] BUS_NAMES = {"Tom", "Max", "Harvey", "Anna", "Lena", "Paul", "Mia", "Jonas"};
+
+    /**
+     * How the routes are spread over the stations
+     */
+    public enum Distribution {
+        /**
+         * Every station is equally likely to be a route start or destination
+         */
+        UNIFORM,
+        /**
+         * Station i is chosen with a probability proportional to 1 / (i + 1)^skew, i.e. a few hubs and many small stops
+         */
+        POWER_LAW
+    }
+
+    /**
+     * @param seed The random seed
+     * @param stations The number of stations
+     * @param routes The number of routes
+     * @param buses The number of buses, they get the bus numbers 1 to buses
+     * @param minBusesPerRoute The minimum number of buses per route
+     * @param maxBusesPerRoute The maximum number of buses per route
+     * @param distribution How the routes are spread over the stations
+     * @param skew The exponent of the power law distribution
+     */
+    public record Settings(long seed, int stations, int routes, int buses, int minBusesPerRoute, int maxBusesPerRoute,
+                           Distribution distribution, double skew, float minKmPrice, float maxKmPrice,
+                           float minAverageSpeed, float maxAverageSpeed) {
+
+        public Settings {
+            if (stations < 1 || routes < 0 || buses < maxBusesPerRoute || minBusesPerRoute < 0
+                || minBusesPerRoute > maxBusesPerRoute) {
+                throw new IllegalArgumentException("Invalid network settings");
+            }
+        }
+
+        /**
+         * Settings with 1 to 3 buses per route, power law distributed stations, prices from 1 to 5 and speeds from
+         * 20 to 100
+         */
+        public static Settings of(long seed, int stations, int routes, int buses) {
+            return new Settings(seed, stations, routes, buses, 1, Math.min(3, buses), Distribution.POWER_LAW, 1.0,
+                1f, 5f, 20f, 100f);
+        }
+    }
+
+    /**
+     * A network in memory, the entities have ids but are not persisted
+     */
+    public record GeneratedNetwork(List<String> stations, List<BusEntity> buses, List<RouteEntity> routes) { }
+
+    /**
+     * A network written to the database
+     */
+    public record SeededNetwork(List<String> stations, List<Long> busIds, int routes) { }
+
+    private final RouteRepository routeRepository;
+    private final BusRepository busRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Logger logger = LoggerFactory.getLogger(NetworkGenerator.class);
+
+    public NetworkGenerator(RouteRepository routeRepository, BusRepository busRepository, EntityManager entityManager,
+                            TransactionTemplate transactionTemplate) {
+        this.routeRepository = routeRepository;
+        this.busRepository = busRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public static String station(int index) {
+        return "Station " + index;
+    }
+
+    public static GeneratedNetwork generate(Settings settings) {
+        Random random = new Random(settings.seed());
+        List<BusEntity> buses = generateBuses(settings, random);
+        for (int i = 0; i < buses.size(); i++) {
+            buses.get(i).setBusId((long) i + 1);
+        }
+        List<RouteEntity> routes = new ArrayList<>(settings.routes());
+        generateRoutes(settings, random, buses, route -> {
+            route.setRouteId((long) routes.size() + 1);
+            routes.add(route);
+        });
+        return new GeneratedNetwork(stations(settings), buses, routes);
+    }
+
+    /**
+     * Writes the network to the database in chunks of {@value #CHUNK_SIZE} rows, each chunk in its own transaction
+     */
+    public SeededNetwork seed(Settings settings) {
+        Random random = new Random(settings.seed());
+        List<BusEntity> buses = generateBuses(settings, random);
+        List<Long> busIds = new ArrayList<>(buses.size());
+        for (int from = 0; from < buses.size(); from += CHUNK_SIZE) {
+            List<BusEntity> chunk = buses.subList(from, Math.min(from + CHUNK_SIZE, buses.size()));
+            transactionTemplate.executeWithoutResult(status -> {
+                busRepository.saveAll(chunk).forEach(bus -> busIds.add(bus.getBusId()));
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+        logger.info("Network seed - {} buses written", busIds.size());
+
+        List<RouteEntity> chunk = new ArrayList<>(CHUNK_SIZE);
+        Runnable writeChunk = () -> {
+            transactionTemplate.executeWithoutResult(status -> {
+                // the buses are referenced by id only, so they do not have to be loaded again
+                chunk.forEach(route -> route.setBuses(route.getBuses().stream()
+                    .map(bus -> entityManager.getReference(BusEntity.class, busIds.get(bus.getBusNumber() - 1)))
+                    .toList()));
+                routeRepository.saveAll(chunk);
+                entityManager.flush();
+                entityManager.clear();
+            });
+            chunk.clear();
+        };
+        generateRoutes(settings, random, buses, route -> {
+            chunk.add(route);
+            if (chunk.size() == CHUNK_SIZE) {
+                writeChunk.run();
+            }
+        });
+        writeChunk.run();
+        logger.info("Network seed - {} routes between {} stations written", settings.routes(), settings.stations());
+        return new SeededNetwork(stations(settings), busIds, settings.routes());
+    }
+
+    private static List<String> stations(Settings settings) {
+        return IntStream.range(0, settings.stations()).mapToObj(NetworkGenerator::station).toList();
+    }
+
+    private static List<BusEntity> generateBuses(Settings settings, Random random) {
+        List<BusEntity> buses = new ArrayList<>(settings.buses());
+        for (int i = 1; i <= settings.buses(); i++) {
+            buses.add(new BusEntity(i, BUS_NAMES[random.nextInt(BUS_NAMES.length)],
+                uniform(random, settings.minKmPrice(), settings.maxKmPrice()),
+                uniform(random, settings.minAverageSpeed(), settings.maxAverageSpeed())));
+        }
+        return buses;
+    }
+
+    private static void generateRoutes(Settings settings, Random random, List<BusEntity> buses,
+                                       Consumer<RouteEntity> consumer) {
+        double[] cumulativeWeights = cumulativeWeights(settings);
+        for (int i = 0; i < settings.routes(); i++) {
+            int start = pickStation(random, cumulativeWeights);
+            int destination = pickStation(random, cumulativeWeights);
+            if (settings.stations() > 1) {
+                while (destination == start) {
+                    destination = pickStation(random, cumulativeWeights);
+                }
+            }
+            int busCount = settings.minBusesPerRoute()
+                + random.nextInt(settings.maxBusesPerRoute() - settings.minBusesPerRoute() + 1);
+            List<BusEntity> routeBuses = new ArrayList<>(busCount);
+            while (routeBuses.size() < busCount) {
+                BusEntity bus = buses.get(random.nextInt(buses.size()));
+                if (!routeBuses.contains(bus)) {
+                    routeBuses.add(bus);
+                }
+            }
+            consumer.accept(new RouteEntity(station(start), station(destination), routeBuses));
+        }
+    }
+
+    private static double[] cumulativeWeights(Settings settings) {
+        double[] weights = new double[settings.stations()];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += settings.distribution() == Distribution.UNIFORM ? 1 : 1 / Math.pow(i + 1, settings.skew());
+            weights[i] = sum;
+        }
+        return weights;
+    }
+
+    private static int pickStation(Random random, double[] cumulativeWeights) {
+        double value = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        int index = Arrays.binarySearch(cumulativeWeights, value);
+        return Math.min(index < 0 ? -index - 1 : index, cumulativeWeights.length - 1);
+    }
+
+    // rounded to cents
+    private static float uniform(Random random, float min, float max) {
+        return Math.round((min + random.nextFloat() * (max - min)) * 100) / 100f;
+    }
+}
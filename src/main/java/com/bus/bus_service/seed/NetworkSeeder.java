@@ -0,0 +1,41 @@
+package com.bus.bus_service.seed;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Seeds the database with a synthetic network on startup, e.g.
+ * {@code java -jar route-service.jar --spring.profiles.active=seed --seed.routes=100000}
+ */
+@Component
+@Profile("seed")
+public class NetworkSeeder implements CommandLineRunner {
+
+    private final NetworkGenerator networkGenerator;
+    private final NetworkGenerator.Settings settings;
+
+    public NetworkSeeder(NetworkGenerator networkGenerator,
+                         @Value("${seed.seed:42}") long seed,
+                         @Value("${seed.stations:1000}") int stations,
+                         @Value("${seed.routes:10000}") int routes,
+                         @Value("${seed.buses:1000}") int buses,
+                         @Value("${seed.min-buses-per-route:1}") int minBusesPerRoute,
+                         @Value("${seed.max-buses-per-route:3}") int maxBusesPerRoute,
+                         @Value("${seed.distribution:POWER_LAW}") NetworkGenerator.Distribution distribution,
+                         @Value("${seed.skew:1.0}") double skew,
+                         @Value("${seed.min-km-price:1}") float minKmPrice,
+                         @Value("${seed.max-km-price:5}") float maxKmPrice,
+                         @Value("${seed.min-average-speed:20}") float minAverageSpeed,
+                         @Value("${seed.max-average-speed:100}") float maxAverageSpeed) {
+        this.networkGenerator = networkGenerator;
+        this.settings = new NetworkGenerator.Settings(seed, stations, routes, buses, minBusesPerRoute, maxBusesPerRoute,
+            distribution, skew, minKmPrice, maxKmPrice, minAverageSpeed, maxAverageSpeed);
+    }
+
+    @Override
+    public void run(String... args) {
+        networkGenerator.seed(settings);
+    }
+}
@@ -1,36 +1,112 @@
 package com.bus.bus_service.service;
 
+import com.bus.bus_service.cache.BusCache;
 import com.bus.bus_service.dto.Bus;
+import com.bus.bus_service.dto.ContinuationToken;
+import com.bus.bus_service.dto.KeysetPage;
 import com.bus.bus_service.entities.BusEntity;
 import com.bus.bus_service.entities.RouteEntity;
+import com.bus.bus_service.events.NetworkChangeEvent;
 import com.bus.bus_service.exceptions.BusIsCurrentlyInUseException;
 import com.bus.bus_service.exceptions.BusNotExistsException;
 import com.bus.bus_service.exceptions.BusNumberAlreadyExistsException;
 import com.bus.bus_service.exceptions.BusNumberNotFoundException;
 import com.bus.bus_service.repository.BusRepository;
 import com.bus.bus_service.repository.RouteRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Component
+@Timed("bus.service")
+@Transactional(readOnly = true)
 public class BusService {
 
     private final BusRepository busRepository;
     private final RouteRepository routeRepository;
+    private final BusCache busCache;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public BusService(BusRepository busRepository, RouteRepository routeRepository){
+    // Matches hibernate.jdbc.batch_size, the persistence context is flushed and cleared after every batch
+    private static final int BATCH_SIZE = 50;
+    // Upper bound for the amount of bus numbers in a single "in" clause
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    public BusService(BusRepository busRepository, RouteRepository routeRepository, BusCache busCache,
+                      EntityManager entityManager, ApplicationEventPublisher eventPublisher){
         this.busRepository = busRepository;
         this.routeRepository = routeRepository;
+        this.busCache = busCache;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
     }
 
+    @Transactional
     public Optional<BusEntity> createBus(BusEntity bus){
         if(busRepository.existsByBusNumber(bus.getBusNumber())){
             throw new BusNumberAlreadyExistsException(bus.getBusNumber().longValue());
         }
-        return Optional.of(busRepository.save(bus));
+        BusEntity savedBus = busRepository.save(bus);
+        busCache.evict(savedBus.getBusId(), savedBus.getBusNumber());
+        eventPublisher.publishEvent(NetworkChangeEvent.of(NetworkChangeEvent.Type.BUSES_SAVED, savedBus.getBusId()));
+        return Optional.of(savedBus);
+    }
+    /**
+     * Creates all given buses in one transaction using JDBC batch inserts
+     * @param buses The buses to create
+     * @return One entry per given bus in the same order: the created bus, or empty if the bus number
+     * already exists or is used by an earlier bus of the list
+     */
+    @Transactional
+    public List<Optional<BusEntity>> createBuses(List<BusEntity> buses){
+        Set<Integer> usedNumbers = new HashSet<>();
+        List<Integer> busNumbers = buses.stream().map(BusEntity::getBusNumber).distinct().toList();
+        for(int i = 0; i < busNumbers.size(); i += LOOKUP_CHUNK_SIZE){
+            usedNumbers.addAll(busRepository.findExistingBusNumbers(
+                busNumbers.subList(i, Math.min(i + LOOKUP_CHUNK_SIZE, busNumbers.size()))));
+        }
+
+        List<Optional<BusEntity>> results = new ArrayList<>(buses.size());
+        List<BusEntity> batch = new ArrayList<>(BATCH_SIZE);
+        for(BusEntity bus : buses){
+            if(!usedNumbers.add(bus.getBusNumber())){
+                results.add(Optional.empty());
+                continue;
+            }
+            results.add(Optional.of(bus));
+            batch.add(bus);
+            if(batch.size() == BATCH_SIZE){
+                saveBatch(batch);
+            }
+        }
+        saveBatch(batch);
+        List<Long> createdIds = results.stream().flatMap(Optional::stream).map(BusEntity::getBusId).toList();
+        if(!createdIds.isEmpty()){
+            eventPublisher.publishEvent(new NetworkChangeEvent(NetworkChangeEvent.Type.BUSES_SAVED, createdIds));
+        }
+        return results;
+    }
+
+    private void saveBatch(List<BusEntity> batch){
+        if(batch.isEmpty()){
+            return;
+        }
+        busRepository.saveAll(batch);
+        entityManager.flush();
+        entityManager.clear();
+        batch.clear();
     }
+
     /*public Optional<BusEntity> updateBus(Long busId, BusEntity updatedBus) {
         if(busRepository.existsById(busId)){
             Optional<BusEntity> checkBus = busRepository.findBusEntityByBusNumber(updatedBus.getBusNumber());
@@ -44,30 +120,34 @@ public class BusService {
         }
         throw new BusNotFoundException(busId);
     }*/
+    @Transactional
     public Optional<BusEntity> updateBus(Long busId, BusEntity updatedBus) {
-        if(busRepository.existsById(busId)){
-            Optional<BusEntity> checkBus = busRepository.findBusEntityByBusNumber(updatedBus.getBusNumber());
-            if(checkBus.isPresent()){
-                if(!checkBus.get().getBusId().equals(busId)){
-                    throw new BusNumberAlreadyExistsException(updatedBus.getBusNumber().longValue());
-                }
-                updatedBus.setBusId(busId);
-                return Optional.of(busRepository.save(updatedBus));
+        Optional<BusEntity> currentBus = busCache.getById(busId);
+        if(currentBus.isPresent()){
+            Optional<BusEntity> checkBus = busCache.getByNumber(updatedBus.getBusNumber());
+            if(checkBus.isPresent() && !checkBus.get().getBusId().equals(busId)){
+                throw new BusNumberAlreadyExistsException(updatedBus.getBusNumber().longValue());
             }
             updatedBus.setBusId(busId);
-            return Optional.of(busRepository.save(updatedBus));
+            BusEntity savedBus = busRepository.save(updatedBus);
+            busCache.evict(busId, currentBus.get().getBusNumber(), savedBus.getBusNumber());
+            eventPublisher.publishEvent(NetworkChangeEvent.of(NetworkChangeEvent.Type.BUSES_SAVED, busId));
+            return Optional.of(savedBus);
         }
         throw new BusNotExistsException(busId);
     }
 
+    @Transactional
     public boolean deleteBusById(Long id){
-        Optional<BusEntity> bus = busRepository.findById(id);
+        Optional<BusEntity> bus = busCache.getById(id);
         if(bus.isPresent()){
             List<RouteEntity> routes = routeRepository.getRouteEntityByBusesContaining(List.of(bus.get()));
             if(!routes.isEmpty()){
                 throw new BusIsCurrentlyInUseException(bus.get().getBusId(), routes);
             }else {
                 busRepository.deleteById(id);
+                busCache.evict(id, bus.get().getBusNumber());
+                eventPublisher.publishEvent(NetworkChangeEvent.of(NetworkChangeEvent.Type.BUSES_DELETED, id));
                 return true;
             }
         }else{
@@ -75,24 +155,46 @@ public class BusService {
         }
     }
 
+    @Transactional
     public boolean deleteBusByBusNumber(Integer busNumber){
-        if(busRepository.existsByBusNumber(busNumber)){
+        Optional<BusEntity> bus = busCache.getByNumber(busNumber);
+        if(bus.isPresent()){
             busRepository.deleteByBusNumber(busNumber);
+            busCache.evict(bus.get().getBusId(), busNumber);
+            eventPublisher.publishEvent(NetworkChangeEvent.of(NetworkChangeEvent.Type.BUSES_DELETED, bus.get().getBusId()));
             return true;
         }else{
             return false;
         }
     }
 
-    public List<BusEntity> getAllBusses(){
-        return busRepository.findAll();
+    /**
+     * Returns all buses as DTOs read directly by the query, without loading managed entities
+     */
+    public List<Bus> getAllBusses(){
+        return busRepository.findAllBuses();
     }
+
+    /**
+     * Returns one page of the bus listing ordered by busId
+     * @param continuation The continuation token of the previous page or null for the first page
+     * @param limit The maximum amount of buses on the page
+     */
+    public KeysetPage<Bus> getBusPage(String continuation, int limit){
+        Long afterId = continuation == null ? 0L : ContinuationToken.decode(continuation, "bus").id();
+        List<Bus> buses = busRepository.findBusesAfter(afterId, Limit.of(limit));
+        if(buses.size() < limit){
+            return new KeysetPage<>(buses, null);
+        }
+        return new KeysetPage<>(buses, new ContinuationToken("bus", buses.getLast().busId()));
+    }
+
     public Optional<BusEntity> getBusById(Long id){
-        return busRepository.findById(id);
+        return busCache.getById(id);
     }
 
     public Optional<BusEntity> getBusByBusNumber(Integer busNumber){
-        Optional<BusEntity> busEntityOptional = busRepository.findBusEntityByBusNumber(busNumber);
+        Optional<BusEntity> busEntityOptional = busCache.getByNumber(busNumber);
         if(busEntityOptional.isPresent()){
             return busEntityOptional;
         }
@@ -0,0 +1,135 @@
+package com.bus.bus_service.service;
+
+import com.bus.bus_service.dto.Bus;
+import com.bus.bus_service.dto.ChangeLogRow;
+import com.bus.bus_service.dto.ContinuationToken;
+import com.bus.bus_service.dto.NetworkChanges;
+import com.bus.bus_service.dto.Route;
+import com.bus.bus_service.entities.ChangeLogEntity;
+import com.bus.bus_service.entities.ChangeLogEntity.EntityType;
+import com.bus.bus_service.events.NetworkChangeEvent;
+import com.bus.bus_service.repository.BusRepository;
+import com.bus.bus_service.repository.ChangeLogRepository;
+import com.bus.bus_service.repository.RouteRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Change log of the routes and buses, so clients can synchronize their copy of the network with the changes since
+ * their last request instead of downloading the whole network again. Every route or bus change is recorded in the
+ * transaction of the change, together with a version which increases with every writing transaction.
+ */
+@Component
+@Timed("change.log.service")
+@Transactional(readOnly = true)
+public class ChangeLogService {
+
+    private static final String TOKEN_SCOPE = "changes";
+
+    private final ChangeLogRepository changeLogRepository;
+    private final RouteService routeService;
+    private final RouteRepository routeRepository;
+    private final BusRepository busRepository;
+
+    public ChangeLogService(ChangeLogRepository changeLogRepository, RouteService routeService,
+                            RouteRepository routeRepository, BusRepository busRepository) {
+        this.changeLogRepository = changeLogRepository;
+        this.routeService = routeService;
+        this.routeRepository = routeRepository;
+        this.busRepository = busRepository;
+    }
+
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void createVersion() {
+        changeLogRepository.createVersion();
+    }
+
+    // a plain event listener, so the changes are written in the transaction of the route or bus change
+    @Transactional
+    @EventListener
+    public void onNetworkChange(NetworkChangeEvent event) {
+        if (changeLogRepository.incrementVersion() == 0) {
+            changeLogRepository.createVersion();
+            changeLogRepository.incrementVersion();
+        }
+        long version = changeLogRepository.findVersion().orElseThrow();
+        EntityType entityType = switch (event.type()) {
+            case ROUTES_SAVED, ROUTES_DELETED -> EntityType.ROUTE;
+            case BUSES_SAVED, BUSES_DELETED -> EntityType.BUS;
+        };
+        boolean deleted = event.type() == NetworkChangeEvent.Type.ROUTES_DELETED
+            || event.type() == NetworkChangeEvent.Type.BUSES_DELETED;
+        List<ChangeLogEntity> changes = new ArrayList<>(event.ids().stream()
+            .map(id -> new ChangeLogEntity(version, entityType, id, deleted))
+            .toList());
+        if (event.type() == NetworkChangeEvent.Type.BUSES_SAVED) {
+            // the routes contain their buses, so a saved bus changes all of its routes
+            routeRepository.findRouteIdsByBusIdIn(event.ids()).forEach(routeId ->
+                changes.add(new ChangeLogEntity(version, EntityType.ROUTE, routeId, false)));
+        }
+        changeLogRepository.saveAll(changes);
+    }
+
+    /**
+     * Returns the changes since the version of the token. Several changes of the same route or bus are compacted to
+     * its current state or to its deletion. If there are more changes than routes and buses, the whole network is
+     * returned instead.
+     * @param since The token of the previous response or null for all routes and buses
+     */
+    public NetworkChanges getChanges(String since) {
+        if (since == null) {
+            return getNetwork();
+        }
+        long version = ContinuationToken.decode(since, TOKEN_SCOPE).id();
+        long networkSize = changeLogRepository.countNetwork();
+        List<ChangeLogRow> changes = changeLogRepository.findChangesAfter(version,
+            Limit.of((int) Math.min(networkSize + 1, Integer.MAX_VALUE)));
+        if (changes.size() > networkSize) {
+            return getNetwork();
+        }
+
+        List<ChangeLogRow> routeChanges = new ArrayList<>();
+        List<ChangeLogRow> busChanges = new ArrayList<>();
+        for (ChangeLogRow change : changes) {
+            (change.entityType() == EntityType.ROUTE ? routeChanges : busChanges).add(change);
+            version = Math.max(version, change.version());
+        }
+
+        List<Route> routes = routeService.getRoutesById(savedIds(routeChanges));
+        List<Long> savedBusIds = savedIds(busChanges);
+        List<Bus> buses = savedBusIds.isEmpty() ? List.of() : busRepository.findBusesByBusIdIn(savedBusIds);
+        return new NetworkChanges(false, routes, deletedIds(routeChanges, routes.stream().map(Route::routeId).toList()),
+            buses, deletedIds(busChanges, buses.stream().map(Bus::busId).toList()),
+            new ContinuationToken(TOKEN_SCOPE, version).encode());
+    }
+
+    private NetworkChanges getNetwork() {
+        // the version is read first, the routes and buses read afterwards contain at least its changes
+        long version = changeLogRepository.findVersion().orElse(0L);
+        return new NetworkChanges(true, routeService.getAllRoutes(), List.of(), busRepository.findAllBuses(),
+            List.of(), new ContinuationToken(TOKEN_SCOPE, version).encode());
+    }
+
+    private static List<Long> savedIds(List<ChangeLogRow> changes) {
+        return changes.stream().filter(change -> !change.deleted()).map(ChangeLogRow::entityId).toList();
+    }
+
+    // a saved route or bus which does not exist anymore was deleted by a transaction committed after the log was read
+    private static List<Long> deletedIds(List<ChangeLogRow> changes, List<Long> existingIds) {
+        Set<Long> existing = new HashSet<>(existingIds);
+        return changes.stream()
+            .filter(change -> change.deleted() || !existing.contains(change.entityId()))
+            .map(ChangeLogRow::entityId)
+            .toList();
+    }
+}
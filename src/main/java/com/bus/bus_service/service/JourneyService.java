@@ -0,0 +1,171 @@
+package com.bus.bus_service.service;
+
+import com.bus.bus_service.dto.Journey;
+import com.bus.bus_service.dto.JourneyLeg;
+import com.bus.bus_service.dto.JourneyMatrix;
+import com.bus.bus_service.exceptions.JourneyNotFoundException;
+import com.bus.bus_service.graph.RouteGraph;
+import com.bus.bus_service.graph.RouteNetworkIndex;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Plans journeys over the in-memory route graph. Depending on the criteria a journey has the fewest legs
+ * ("transfers", ties broken by price), the lowest sum of km prices ("price") or the lowest sum of 1 / averageSpeed,
+ * i.e. the shortest travel time if every leg has the same length ("speed").
+ */
+@Component
+@Timed("journey.service")
+public class JourneyService {
+
+    // keeps the fewest transfers search deterministic by preferring the cheaper of two journeys with the same legs
+    private static final double TRANSFER_COST = 1e6;
+
+    private final RouteNetworkIndex routeNetworkIndex;
+    // the searches are CPU bound, so they get their own pool instead of the common pool
+    private final ForkJoinPool matrixPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    public JourneyService(RouteNetworkIndex routeNetworkIndex) {
+        this.routeNetworkIndex = routeNetworkIndex;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        matrixPool.shutdownNow();
+    }
+
+    public boolean isSupportedCriteria(String criteria) {
+        return criteria.equals("transfers") || criteria.equals("price") || criteria.equals("speed");
+    }
+
+    public Journey findJourney(String from, String to, String criteria) {
+        RouteGraph graph = routeNetworkIndex.getGraph();
+        int source = graph.stationId(from);
+        int target = graph.stationId(to);
+        if (source < 0 || target < 0) {
+            throw new JourneyNotFoundException(from, to);
+        }
+        SearchTree tree = search(graph, source, target, criteria);
+        if (tree.costs()[target] == Double.MAX_VALUE) {
+            throw new JourneyNotFoundException(from, to);
+        }
+        return toJourney(graph, from, to, source, target, tree);
+    }
+
+    /**
+     * Calculates the cost of the best journey between every pair of the given stations. The rows are the origins,
+     * the columns the destinations. A cost is the number of transfers, the total km price or the total travel time
+     * (sum of 1 / averageSpeed) depending on the criteria and null if there is no journey. Every origin is searched
+     * once with a one-to-all search, the origins are searched in parallel.
+     */
+    public JourneyMatrix getJourneyMatrix(List<String> stations, String criteria) {
+        RouteGraph graph = routeNetworkIndex.getGraph();
+        int[] stationIds = stations.stream().mapToInt(graph::stationId).toArray();
+        List<Callable<List<Float>>> rows = new ArrayList<>(stationIds.length);
+        for (int origin : stationIds) {
+            rows.add(() -> toMatrixRow(graph, origin, stationIds, criteria));
+        }
+        List<List<Float>> costs = new ArrayList<>(stationIds.length);
+        try {
+            for (Future<List<Float>> row : matrixPool.invokeAll(rows)) {
+                costs.add(row.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Journey matrix calculation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Journey matrix calculation failed", e.getCause());
+        }
+        return new JourneyMatrix(stations, criteria, costs);
+    }
+
+    private List<Float> toMatrixRow(RouteGraph graph, int origin, int[] stationIds, String criteria) {
+        List<Float> row = new ArrayList<>(stationIds.length);
+        SearchTree tree = origin < 0 ? null : search(graph, origin, -1, criteria);
+        for (int destination : stationIds) {
+            if (tree == null || destination < 0 || tree.costs()[destination] == Double.MAX_VALUE) {
+                row.add(null);
+            } else if (criteria.equals("transfers")) {
+                row.add((float) Math.max(0, tree.legs()[destination] - 1));
+            } else {
+                row.add((float) tree.costs()[destination]);
+            }
+        }
+        return row;
+    }
+
+    private record SearchTree(double[] costs, int[] legs, int[] reachedBy, int[] previous) { }
+
+    /**
+     * Dijkstra search from the source. It stops as soon as the target is settled; a negative target searches the
+     * whole reachable network.
+     */
+    private SearchTree search(RouteGraph graph, int source, int target, String criteria) {
+        record Candidate(int station, double cost) { }
+        double[] costs = new double[graph.stationCount()];
+        int[] legs = new int[graph.stationCount()];
+        int[] reachedBy = new int[graph.stationCount()];
+        int[] previous = new int[graph.stationCount()];
+        Arrays.fill(costs, Double.MAX_VALUE);
+        PriorityQueue<Candidate> queue = new PriorityQueue<>((a, b) -> Double.compare(a.cost(), b.cost()));
+        costs[source] = 0;
+        queue.add(new Candidate(source, 0));
+        while (!queue.isEmpty()) {
+            Candidate candidate = queue.poll();
+            if (candidate.station() == target) {
+                break;
+            }
+            if (candidate.cost() > costs[candidate.station()]) {
+                continue;
+            }
+            for (int edge = graph.firstEdge(candidate.station()); edge < graph.endEdge(candidate.station()); edge++) {
+                double next = candidate.cost() + cost(graph, edge, criteria);
+                int destination = graph.target(edge);
+                if (next < costs[destination]) {
+                    costs[destination] = next;
+                    legs[destination] = legs[candidate.station()] + 1;
+                    reachedBy[destination] = edge;
+                    previous[destination] = candidate.station();
+                    queue.add(new Candidate(destination, next));
+                }
+            }
+        }
+        return new SearchTree(costs, legs, reachedBy, previous);
+    }
+
+    private double cost(RouteGraph graph, int edge, String criteria) {
+        return switch (criteria) {
+            case "price" -> graph.kmPrice(edge);
+            case "speed" -> 1.0 / graph.averageSpeed(edge);
+            default -> TRANSFER_COST + graph.kmPrice(edge);
+        };
+    }
+
+    private Journey toJourney(RouteGraph graph, String from, String to, int source, int target, SearchTree tree) {
+        List<JourneyLeg> legs = new ArrayList<>();
+        float totalKmPrice = 0;
+        float totalInverseSpeed = 0;
+        for (int station = target; station != source; ) {
+            int edge = tree.reachedBy()[station];
+            station = tree.previous()[station];
+            legs.add(new JourneyLeg(graph.routeId(edge), graph.stationName(station), graph.stationName(graph.target(edge)),
+                graph.bus(edge)));
+            totalKmPrice += graph.kmPrice(edge);
+            totalInverseSpeed += 1 / graph.averageSpeed(edge);
+        }
+        Collections.reverse(legs);
+        Float averageSpeed = legs.isEmpty() ? null : legs.size() / totalInverseSpeed;
+        return new Journey(from, to, Math.max(0, legs.size() - 1), totalKmPrice, averageSpeed, legs);
+    }
+}
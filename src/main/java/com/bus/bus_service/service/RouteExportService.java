@@ -0,0 +1,106 @@
+package com.bus.bus_service.service;
+
+import com.bus.bus_service.dto.Bus;
+import com.bus.bus_service.dto.Route;
+import com.bus.bus_service.dto.RouteBusRow;
+import com.bus.bus_service.repository.RouteRepository;
+import com.bus.bus_service.util.Csv;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Writes all routes with their buses to a stream. The rows are read through a database cursor and written
+ * route by route, so the memory usage and the time to the first byte do not depend on the size of the network.
+ */
+@Component
+public class RouteExportService {
+
+    // the output is flushed after the first route and then after every FLUSH_INTERVAL routes
+    private static final int FLUSH_INTERVAL = 100;
+
+    private final RouteRepository routeRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public RouteExportService(RouteRepository routeRepository, PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper) {
+        this.routeRepository = routeRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes one route per line as JSON object, in the same format as GET /api/v1/route
+     */
+    public void exportNdjson(OutputStream outputStream) {
+        exportRoutes(outputStream, route -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(route));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Writes one route per line with the columns routeId, start, destination and busNumber, the bus numbers
+     * of a route are separated by semicolons. The output can be imported with POST /api/v1/route/import.
+     */
+    public void exportCsv(OutputStream outputStream) {
+        writeLine(outputStream, Csv.formatLine(List.of("routeId", "start", "destination", "busNumber")));
+        exportRoutes(outputStream, route -> writeLine(outputStream, Csv.formatLine(List.of(
+            route.routeId().toString(), route.start(), route.destination(),
+            String.join(";", route.buses().stream().map(bus -> bus.busNumber().toString()).toList())))));
+    }
+
+    private void writeLine(OutputStream outputStream, String line) {
+        try {
+            outputStream.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void exportRoutes(OutputStream outputStream, Consumer<Route> writer) {
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try (Stream<RouteBusRow> rows = routeRepository.streamAllRouteBusRows()) {
+                Iterator<RouteBusRow> iterator = rows.iterator();
+                long writtenRoutes = 0;
+                RouteBusRow row = iterator.hasNext() ? iterator.next() : null;
+                while (row != null) {
+                    // collect the consecutive rows of one route
+                    RouteBusRow routeRow = row;
+                    List<Bus> buses = new ArrayList<>();
+                    while (row != null && row.routeId().equals(routeRow.routeId())) {
+                        if (row.busId() != null) {
+                            buses.add(new Bus(row.busId(), row.busNumber(), row.name(), row.kmPrice(),
+                                row.averageSpeed()));
+                        }
+                        row = iterator.hasNext() ? iterator.next() : null;
+                    }
+                    writer.accept(new Route(routeRow.routeId(), routeRow.start(), routeRow.destination(), buses));
+                    if (++writtenRoutes % FLUSH_INTERVAL == 1) {
+                        outputStream.flush();
+                    }
+                }
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,277 @@
+package com.bus.bus_service.service;
+
+import com.bus.bus_service.dto.RouteCreationDTO;
+import com.bus.bus_service.dto.RouteImportReport;
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.entities.RouteEntity;
+import com.bus.bus_service.events.NetworkChangeEvent;
+import com.bus.bus_service.repository.BusRepository;
+import com.bus.bus_service.repository.RouteRepository;
+import com.bus.bus_service.util.Csv;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Imports routes from NDJSON or CSV streams. The input is read line by line and written in chunks,
+ * each chunk in its own transaction, so the memory usage does not depend on the size of the input.
+ */
+@Component
+public class RouteImportService {
+
+    static final int CHUNK_SIZE = 500;
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final RouteRepository routeRepository;
+    private final BusRepository busRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Logger logger = LoggerFactory.getLogger(RouteImportService.class);
+
+    public RouteImportService(RouteRepository routeRepository, BusRepository busRepository, EntityManager entityManager,
+                              TransactionTemplate transactionTemplate, ObjectMapper objectMapper, Validator validator,
+                              ApplicationEventPublisher eventPublisher) {
+        this.routeRepository = routeRepository;
+        this.busRepository = busRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Imports one route per line, each line is a JSON object like the body of POST /api/v1/route
+     */
+    public RouteImportReport importNdjson(InputStream inputStream) throws IOException {
+        ImportRun run = new ImportRun();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    run.add(lineNumber, objectMapper.readValue(line, RouteCreationDTO.class));
+                } catch (JsonProcessingException e) {
+                    run.fail(lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+
+    /**
+     * Imports one route per line. The first line is a header containing the columns "start", "destination"
+     * and "busNumber", further columns (e.g. the "routeId" of an export) are ignored.
+     * The bus numbers of a route are separated by semicolons.
+     */
+    public RouteImportReport importCsv(InputStream inputStream) throws IOException {
+        ImportRun run = new ImportRun();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            List<String> header = null;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (header == null) {
+                    header = Csv.parseLine(line.strip());
+                    if (!header.containsAll(List.of("start", "destination", "busNumber"))) {
+                        run.fail(lineNumber, "The header must contain the columns start, destination and busNumber");
+                        break;
+                    }
+                    continue;
+                }
+                try {
+                    List<String> fields = Csv.parseLine(line);
+                    if (fields.size() != header.size()) {
+                        throw new IllegalArgumentException("Expected " + header.size() + " fields but found " + fields.size());
+                    }
+                    run.add(lineNumber, new RouteCreationDTO(fields.get(header.indexOf("start")),
+                        fields.get(header.indexOf("destination")), parseBusNumbers(fields.get(header.indexOf("busNumber")))));
+                } catch (IllegalArgumentException e) {
+                    run.fail(lineNumber, "Invalid CSV: " + e.getMessage());
+                }
+            }
+        }
+        return run.finish();
+    }
+
+    private static List<Integer> parseBusNumbers(String field) {
+        List<Integer> busNumbers = new ArrayList<>();
+        for (String busNumber : field.split(";")) {
+            if (!busNumber.isBlank()) {
+                busNumbers.add(Integer.valueOf(busNumber.strip()));
+            }
+        }
+        return busNumbers;
+    }
+
+    private record ImportLine(long lineNumber, RouteCreationDTO route) { }
+
+    /**
+     * State of a single import: the current chunk and the counters of the report
+     */
+    private class ImportRun {
+        private final List<ImportLine> chunk = new ArrayList<>(CHUNK_SIZE);
+        private final List<RouteImportReport.LineError> errors = new ArrayList<>();
+        private long processedLines;
+        private long importedRoutes;
+        private long failedLines;
+
+        void add(long lineNumber, RouteCreationDTO route) {
+            processedLines++;
+            chunk.add(new ImportLine(lineNumber, route));
+            if (chunk.size() == CHUNK_SIZE) {
+                writeChunk();
+            }
+        }
+
+        void fail(long lineNumber, String error) {
+            processedLines++;
+            failLine(lineNumber, error);
+        }
+
+        private void failLine(long lineNumber, String error) {
+            failedLines++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RouteImportReport.LineError(lineNumber, error));
+            }
+        }
+
+        RouteImportReport finish() {
+            writeChunk();
+            // parse errors are recorded immediately, the other errors when their chunk is written
+            errors.sort(Comparator.comparingLong(RouteImportReport.LineError::line));
+            return new RouteImportReport(processedLines, importedRoutes, failedLines, List.copyOf(errors),
+                failedLines > errors.size());
+        }
+
+        private void writeChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<ImportLine> writtenLines = new ArrayList<>();
+            try {
+                writeLines(chunk, writtenLines);
+                importedRoutes += writtenLines.size();
+            } catch (DataAccessException e) {
+                logger.warn("Route import - chunk with lines {} to {} could not be written, writing its lines one by "
+                    + "one", chunk.getFirst().lineNumber(), chunk.getLast().lineNumber(), e);
+                // the chunk was rolled back, every line gets its own transaction so only the failing lines are reported
+                for (ImportLine line : writtenLines) {
+                    List<ImportLine> writtenLine = new ArrayList<>(1);
+                    try {
+                        writeLines(List.of(line), writtenLine);
+                        importedRoutes += writtenLine.size();
+                    } catch (DataAccessException lineException) {
+                        logger.warn("Route import - line {} could not be written: {}", line.lineNumber(),
+                            lineException.getMostSpecificCause().getMessage());
+                        failLine(line.lineNumber(), "The route could not be saved");
+                    }
+                }
+            }
+            chunk.clear();
+            logger.info("Route import - {} lines processed, {} routes imported, {} lines failed",
+                processedLines, importedRoutes, failedLines);
+        }
+
+        /**
+         * Writes the valid lines in one transaction and adds them to writtenLines, the invalid lines are recorded as
+         * failed
+         */
+        private void writeLines(List<ImportLine> lines, List<ImportLine> writtenLines) {
+            Set<Integer> busNumbers = new HashSet<>();
+            lines.stream()
+                .filter(line -> line.route().busNumber() != null)
+                .forEach(line -> line.route().busNumber().stream().filter(Objects::nonNull).forEach(busNumbers::add));
+
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Integer, BusEntity> busesByNumber = new HashMap<>();
+                if (!busNumbers.isEmpty()) {
+                    busRepository.findAllByBusNumberIn(busNumbers)
+                        .forEach(bus -> busesByNumber.put(bus.getBusNumber(), bus));
+                }
+
+                List<RouteEntity> routes = new ArrayList<>();
+                for (ImportLine line : lines) {
+                    RouteEntity route = toRouteEntity(line, busesByNumber);
+                    if (route != null) {
+                        routes.add(route);
+                        writtenLines.add(line);
+                    }
+                }
+                // flushed through the repository, so a failing insert is translated into a DataAccessException
+                routeRepository.saveAllAndFlush(routes);
+                entityManager.clear();
+                if (!routes.isEmpty()) {
+                    eventPublisher.publishEvent(new NetworkChangeEvent(NetworkChangeEvent.Type.ROUTES_SAVED,
+                        routes.stream().map(RouteEntity::getRouteId).toList()));
+                }
+            });
+        }
+
+        /**
+         * Creates the route of the line or records the error of the line and returns null
+         */
+        private RouteEntity toRouteEntity(ImportLine line, Map<Integer, BusEntity> busesByNumber) {
+            RouteCreationDTO routeCreationDTO = line.route();
+            List<String> violations = validator.validate(routeCreationDTO).stream()
+                .map(ConstraintViolation::getMessage).sorted().toList();
+            if (!violations.isEmpty()) {
+                failLine(line.lineNumber(), String.join(", ", violations));
+                return null;
+            }
+            if (routeCreationDTO.busNumber().contains(null)) {
+                failLine(line.lineNumber(), "Bus Number cannot be empty");
+                return null;
+            }
+            List<BusEntity> buses = new ArrayList<>();
+            List<Integer> missingNumbers = new ArrayList<>();
+            for (Integer busNumber : routeCreationDTO.busNumber().stream().distinct().toList()) {
+                BusEntity bus = busesByNumber.get(busNumber);
+                if (bus != null) {
+                    buses.add(bus);
+                } else {
+                    missingNumbers.add(busNumber);
+                }
+            }
+            if (!missingNumbers.isEmpty()) {
+                failLine(line.lineNumber(), "One or more buses with the given busNumbers do not exist: " + missingNumbers);
+                return null;
+            }
+            return new RouteEntity(routeCreationDTO.start(), routeCreationDTO.destination(), buses);
+        }
+    }
+}
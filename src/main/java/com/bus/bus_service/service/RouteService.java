@@ -1,66 +1,268 @@
 package com.bus.bus_service.service;
 
+import com.bus.bus_service.cache.BusCache;
+import com.bus.bus_service.dto.Bus;
+import com.bus.bus_service.dto.ContinuationToken;
+import com.bus.bus_service.dto.KeysetPage;
+import com.bus.bus_service.dto.Route;
+import com.bus.bus_service.dto.RouteBusRow;
 import com.bus.bus_service.entities.BusEntity;
 import com.bus.bus_service.entities.RouteEntity;
+import com.bus.bus_service.events.NetworkChangeEvent;
 import com.bus.bus_service.exceptions.BusNumberAlreadyContainedException;
+import com.bus.bus_service.exceptions.BusNumberNotContainedException;
+import com.bus.bus_service.exceptions.BusNumberNotFoundException;
 import com.bus.bus_service.exceptions.BusNumbersNotExistsException;
 import com.bus.bus_service.exceptions.RouteNotExistsException;
-import com.bus.bus_service.repository.BusRepository;
 import com.bus.bus_service.repository.RouteRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
 
 @Component
+@Timed("route.service")
+@Transactional(readOnly = true)
 public class RouteService {
 
     private final RouteRepository routeRepository;
-    private final BusRepository busRepository;
+    private final BusCache busCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean pushDown;
 
-    public RouteService(RouteRepository routeRepository, BusRepository busRepository){
+    /**
+     * @param pushDown Whether filtering and sorting of the route queries is done by the database.
+     *                 If disabled, the routes are loaded and processed in memory.
+     */
+    public RouteService(RouteRepository routeRepository, BusCache busCache,
+                        ApplicationEventPublisher eventPublisher,
+                        @Value("${route.query.push-down:true}") boolean pushDown){
         this.routeRepository = routeRepository;
-        this.busRepository = busRepository;
+        this.busCache = busCache;
+        this.eventPublisher = eventPublisher;
+        this.pushDown = pushDown;
     }
 
+    @Transactional
     public RouteEntity createRoute(RouteEntity routeEntity) {
-        return routeRepository.save(routeEntity);
+        RouteEntity savedRoute = routeRepository.save(routeEntity);
+        eventPublisher.publishEvent(NetworkChangeEvent.of(NetworkChangeEvent.Type.ROUTES_SAVED, savedRoute.getRouteId()));
+        return savedRoute;
+    }
+
+    /**
+     * Builds the route from the bus numbers and creates it in one transaction
+     */
+    @Transactional
+    public RouteEntity createRoute(List<Integer> busNumbers, String start, String destination) {
+        return createRoute(buildRoute(busNumbers, start, destination).orElseThrow());
     }
 
+    /**
+     * Builds the route from the bus numbers and replaces the route with the given id in one transaction,
+     * so the merge finds the buses in the persistence context instead of loading them one by one
+     */
+    @Transactional
+    public Optional<RouteEntity> updateRoute(Long id, List<Integer> busNumbers, String start, String destination) {
+        return updateRoute(id, buildRoute(busNumbers, start, destination).orElseThrow());
+    }
+
+    @Transactional
     public Optional<RouteEntity> updateRoute(Long id, RouteEntity routeEntity) {
-        if (routeRepository.existsById(id)) {
-            routeEntity.setRouteId(id);
-            return Optional.of(routeRepository.save(routeEntity));
+        RouteEntity route = routeRepository.findById(id).orElseThrow(() -> new RouteNotExistsException(id));
+        route.setStart(routeEntity.getStart());
+        route.setDestination(routeEntity.getDestination());
+        // the bus list is replaced instead of merged, so neither the old list nor the (detached) buses are loaded
+        route.setBuses(routeEntity.getBuses());
+        eventPublisher.publishEvent(NetworkChangeEvent.of(NetworkChangeEvent.Type.ROUTES_SAVED, id));
+        return Optional.of(route);
+    }
+
+    /**
+     * Adds the bus to the route by inserting a single route_bus row, the bus list of the route is not loaded
+     * @return The updated route
+     */
+    @Transactional
+    public Route addBusToRoute(Long routeId, Integer busNumber) {
+        BusEntity bus = findRouteAndBus(routeId, busNumber);
+        int inserted;
+        try {
+            inserted = routeRepository.insertRouteBus(routeId, bus.getBusId());
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent request inserted the same row first
+            inserted = 0;
         }
-        throw new RouteNotExistsException(id);
+        if (inserted == 0) {
+            throw new BusNumberAlreadyContainedException(routeId, busNumber.longValue());
+        }
+        eventPublisher.publishEvent(NetworkChangeEvent.of(NetworkChangeEvent.Type.ROUTES_SAVED, routeId));
+        return getRoute(routeId);
+    }
+
+    /**
+     * Removes the bus from the route by deleting its single route_bus row
+     * @return The updated route
+     */
+    @Transactional
+    public Route removeBusFromRoute(Long routeId, Integer busNumber) {
+        BusEntity bus = findRouteAndBus(routeId, busNumber);
+        if (routeRepository.deleteRouteBus(routeId, bus.getBusId()) == 0) {
+            throw new BusNumberNotContainedException(routeId, busNumber.longValue());
+        }
+        eventPublisher.publishEvent(NetworkChangeEvent.of(NetworkChangeEvent.Type.ROUTES_SAVED, routeId));
+        return getRoute(routeId);
     }
 
-    public Optional<RouteEntity> addBusToRoute(RouteEntity routeEntity, BusEntity busEntity){
-        List<BusEntity> busList = new ArrayList<>(routeEntity.getBuses());
-        busList.removeIf(bus -> !Objects.equals(bus.getBusId(), busEntity.getBusId()));
-        if(!busList.isEmpty()){
-            throw new BusNumberAlreadyContainedException(routeEntity.getRouteId(), busEntity.getBusNumber().longValue());
+    private BusEntity findRouteAndBus(Long routeId, Integer busNumber) {
+        BusEntity bus = busCache.getByNumber(busNumber)
+            .orElseThrow(() -> new BusNumberNotFoundException(busNumber.longValue()));
+        if (!routeRepository.existsById(routeId)) {
+            throw new RouteNotExistsException(routeId);
         }
-        routeEntity.getBuses().add(busEntity);
-        return updateRoute(routeEntity.getRouteId(), routeEntity);
+        return bus;
     }
 
+    private Route getRoute(Long routeId) {
+        return toRoutes(routeRepository.findRouteBusRowsByRouteIdIn(List.of(routeId))).getFirst();
+    }
+
+    @Transactional
     public boolean deleteRouteById(Long id) {
         Optional<RouteEntity> routeEntityOptional = routeRepository.findById(id);
         if (routeEntityOptional.isPresent()) {
             routeRepository.delete(routeEntityOptional.get());
+            eventPublisher.publishEvent(NetworkChangeEvent.of(NetworkChangeEvent.Type.ROUTES_DELETED, id));
             return true;
         } else {
             throw new RouteNotExistsException(id);
         }
     }
 
-    public List<RouteEntity> getAllRoutes() {
-        return routeRepository.findAll();
+    /**
+     * Returns all routes as DTOs, assembled from plain (route, bus) rows without loading managed entities
+     */
+    public List<Route> getAllRoutes() {
+        return toRoutes(routeRepository.findAllRouteBusRows());
+    }
+
+    /**
+     * Returns one page of the route listing, ordered by routeId or - if sorting is enabled - by the sort criteria.
+     * Filtering and sorting behave like filterRoutes and sortRoutes applied to the whole listing.
+     * @param continuation The continuation token of the previous page or null for the first page
+     * @param limit The maximum amount of routes on the page
+     */
+    public KeysetPage<Route> getRoutePage(boolean filter, boolean sort, String criteria, String continuation,
+                                          int limit) {
+        String normalizedCriteria = criteria.toLowerCase();
+        boolean knownCriteria = normalizedCriteria.equals("price") || normalizedCriteria.equals("speed");
+        if (filter) {
+            String scope = "route-filter-" + normalizedCriteria;
+            return getFilteredRoutePage(normalizedCriteria, scope, decode(continuation, scope), limit);
+        } else if (sort && knownCriteria) {
+            String scope = "route-sort-" + normalizedCriteria;
+            return getSortedRoutePage(normalizedCriteria, scope, decode(continuation, scope), limit);
+        }
+        List<Long> routeIds = routeRepository.findRouteIdsAfter(afterId(decode(continuation, "route")), Limit.of(limit));
+        return toRoutePage("route", toRoutes(loadRows(routeIds)), limit);
+    }
+
+    private KeysetPage<Route> getFilteredRoutePage(String criteria, String scope, ContinuationToken after,
+                                                   int limit) {
+        switch (criteria) {
+            case "price": {
+                Optional<Float> minPrice = routeRepository.findMinKmPrice();
+                if (minPrice.isEmpty()) {
+                    return new KeysetPage<>(List.of(), null);
+                }
+                List<Long> routeIds = routeRepository.findRouteIdsWithKmPriceAfter(minPrice.get(), afterId(after),
+                    Limit.of(limit));
+                List<Route> routes = toRoutes(loadRows(routeIds).stream()
+                    .filter(row -> row.kmPrice() <= minPrice.get()).toList());
+                return toRoutePage(scope, routes, limit);
+            }
+            case "speed": {
+                Optional<Float> maxSpeed = routeRepository.findMaxAverageSpeed();
+                if (maxSpeed.isEmpty()) {
+                    return new KeysetPage<>(List.of(), null);
+                }
+                List<Long> routeIds = routeRepository.findRouteIdsWithAverageSpeedAfter(maxSpeed.get(), afterId(after),
+                    Limit.of(limit));
+                List<Route> routes = toRoutes(loadRows(routeIds).stream()
+                    .filter(row -> row.averageSpeed() >= maxSpeed.get()).toList());
+                return toRoutePage(scope, routes, limit);
+            }
+            default:
+                return new KeysetPage<>(List.of(), null);
+        }
+    }
+
+    private KeysetPage<Route> getSortedRoutePage(String criteria, String scope, ContinuationToken after,
+                                                 int limit) {
+        List<RouteBusRow> rows = findSortedRows(criteria, null, null, after, Limit.of(limit));
+        ContinuationToken next = null;
+        if (rows.size() == limit) {
+            RouteBusRow last = rows.getLast();
+            next = new ContinuationToken(scope, last.routeId(),
+                criteria.equals("price") ? last.kmPrice() : last.averageSpeed(), last.busId());
+        }
+        return new KeysetPage<>(rows.stream().map(this::toSlicedRoute).toList(), next);
+    }
+
+    /**
+     * Returns the sorted (route, bus) rows after the given position, starting with the first row if no position is given
+     */
+    private List<RouteBusRow> findSortedRows(String criteria, String start, String destination,
+                                             ContinuationToken after, Limit limit) {
+        if (criteria.equals("price")) {
+            return after == null
+                ? routeRepository.findRouteBusRowsByKmPriceAfter(start, destination, -Float.MAX_VALUE, 0L, 0L, limit)
+                : routeRepository.findRouteBusRowsByKmPriceAfter(start, destination, after.value(), after.id(),
+                    after.secondaryId(), limit);
+        }
+        return after == null
+            ? routeRepository.findRouteBusRowsByAverageSpeedAfter(start, destination, Float.MAX_VALUE, 0L, 0L, limit)
+            : routeRepository.findRouteBusRowsByAverageSpeedAfter(start, destination, after.value(), after.id(),
+                after.secondaryId(), limit);
+    }
+
+    /**
+     * Returns the existing routes of the given ids as DTOs, ordered by routeId
+     */
+    public List<Route> getRoutesById(List<Long> routeIds) {
+        return toRoutes(loadRows(routeIds));
+    }
+
+    private List<RouteBusRow> loadRows(List<Long> routeIds) {
+        if (routeIds.isEmpty()) {
+            return List.of();
+        }
+        return routeRepository.findRouteBusRowsByRouteIdIn(routeIds);
+    }
+
+    private KeysetPage<Route> toRoutePage(String scope, List<Route> routes, int limit) {
+        if (routes.size() < limit) {
+            return new KeysetPage<>(routes, null);
+        }
+        return new KeysetPage<>(routes, new ContinuationToken(scope, routes.getLast().routeId()));
+    }
+
+    private static ContinuationToken decode(String continuation, String scope) {
+        return continuation == null ? null : ContinuationToken.decode(continuation, scope);
+    }
+
+    private static Long afterId(ContinuationToken after) {
+        return after == null ? 0L : after.id();
     }
 
     public Optional<RouteEntity> getRouteById(Long id) {
@@ -71,16 +273,67 @@ public class RouteService {
         throw new RouteNotExistsException(id);
     }
 
-    public List<RouteEntity> getRoutesByStart(String start) {
-        return routeRepository.getRouteEntitiesByStart(start);
+    public List<Route> getRoutesByStart(String start) {
+        return toRoutes(routeRepository.findRouteBusRowsByStart(start));
+    }
+
+    public List<Route> getRoutesByDestination(String destination) {
+        return toRoutes(routeRepository.findRouteBusRowsByDestination(destination));
     }
 
-    public List<RouteEntity> getRoutesByDestination(String destination) {
-        return routeRepository.getRouteEntitiesByDestination(destination);
+    public List<Route> getRoutesByStartAndDestination(String start, String destination) {
+        return toRoutes(routeRepository.findRouteBusRowsByStartAndDestination(start, destination));
     }
 
-    public List<RouteEntity> getRoutesByStartAndDestination(String start, String destination) {
-        return routeRepository.getRouteEntitiesByStartAndDestination(start, destination);
+    /**
+     * Filters the routes with the given (optional) start and destination like filterRoutes,
+     * but lets the database select the matching buses
+     * @param start The start of the routes or null for any start
+     * @param destination The destination of the routes or null for any destination
+     * @return Routes which only contain the buses with the lowest price or the highest speed
+     */
+    public List<Route> getFilteredRoutes(String criteria, String start, String destination) {
+        if (!pushDown) {
+            return filterRoutes(criteria, getRouteEntities(start, destination)).stream().map(this::toRoute).toList();
+        }
+        return switch (criteria.toLowerCase()) {
+            case "price" -> toRoutes(routeRepository.findRouteBusRowsWithMinKmPrice(start, destination));
+            case "speed" -> toRoutes(routeRepository.findRouteBusRowsWithMaxAverageSpeed(start, destination));
+            default -> new ArrayList<>();
+        };
+    }
+
+    /**
+     * Loads the managed routes for the in-memory filtering and sorting
+     */
+    private List<RouteEntity> getRouteEntities(String start, String destination) {
+        if (start != null && destination != null) {
+            return routeRepository.getRouteEntitiesByStartAndDestination(start, destination);
+        } else if (start != null) {
+            return routeRepository.getRouteEntitiesByStart(start);
+        } else if (destination != null) {
+            return routeRepository.getRouteEntitiesByDestination(destination);
+        }
+        return routeRepository.findAll();
+    }
+
+    /**
+     * Assembles rows ordered by routeId into one route per routeId in a single pass,
+     * a row without bus values belongs to a route without buses
+     */
+    private List<Route> toRoutes(List<RouteBusRow> rows) {
+        List<Route> routes = new ArrayList<>();
+        Route current = null;
+        for (RouteBusRow row : rows) {
+            if (current == null || !current.routeId().equals(row.routeId())) {
+                current = new Route(row.routeId(), row.start(), row.destination(), new ArrayList<>());
+                routes.add(current);
+            }
+            if (row.busId() != null) {
+                current.buses().add(toBus(row));
+            }
+        }
+        return routes;
     }
 
     public List<RouteEntity> filterRoutes(String criteria, List<RouteEntity> routes) {
@@ -136,6 +389,25 @@ public class RouteService {
                 .max().orElse(-1);
     }
 
+    /**
+     * Sorts the routes with the given (optional) start and destination like sortRoutes,
+     * but lets the database create and sort the (route, bus) combinations
+     * @param start The start of the routes or null for any start
+     * @param destination The destination of the routes or null for any destination
+     * @param limit The maximum amount of returned combinations or null for all combinations
+     * @return Routes with one bus each, ordered by ascending price or descending speed
+     */
+    public List<Route> getSortedRoutes(String criteria, String start, String destination, Integer limit) {
+        String normalizedCriteria = criteria.toLowerCase();
+        if (!pushDown || !(normalizedCriteria.equals("price") || normalizedCriteria.equals("speed"))) {
+            List<RouteEntity> sortedRoutes = sortRoutes(criteria, getRouteEntities(start, destination));
+            return sortedRoutes.stream().limit(limit == null ? Long.MAX_VALUE : limit).map(this::toRoute).toList();
+        }
+        List<RouteBusRow> rows = findSortedRows(normalizedCriteria, start, destination, null,
+            limit == null ? Limit.unlimited() : Limit.of(limit));
+        return rows.stream().map(this::toSlicedRoute).toList();
+    }
+
     public List<RouteEntity> sortRoutes(String criteria, List<RouteEntity> routes) {
         List<RouteEntity> slicedList = sliceRoutes(routes);
         return switch (criteria.toLowerCase()) {
@@ -154,7 +426,8 @@ public class RouteService {
      * @param routes
      * @return A list of RouteEntities where each entity only have one bus
      */
-    private List<RouteEntity> sliceRoutes(List<RouteEntity> routes) {
+    // package-private for the benchmarks
+    List<RouteEntity> sliceRoutes(List<RouteEntity> routes) {
         List<RouteEntity> slicedEntities = new ArrayList<>();
 
         for (RouteEntity route : routes) {
@@ -170,18 +443,37 @@ public class RouteService {
         return slicedEntities;
     }
 
+    private Route toSlicedRoute(RouteBusRow row) {
+        return new Route(row.routeId(), row.start(), row.destination(), List.of(toBus(row)));
+    }
+
+    private Bus toBus(RouteBusRow row) {
+        return new Bus(row.busId(), row.busNumber(), row.name(), row.kmPrice(), row.averageSpeed());
+    }
+
+    private Route toRoute(RouteEntity route) {
+        return new Route(route.getRouteId(), route.getStart(), route.getDestination(), route.getBuses().stream()
+            .map(bus -> new Bus(bus.getBusId(), bus.getBusNumber(), bus.getName(), bus.getKmPrice(),
+                bus.getAverageSpeed()))
+            .toList());
+    }
+
     public Optional<RouteEntity> buildRoute(List<Integer> busNumbers, String start, String destination){
+        // the buses missing in the cache are loaded with one query, the route keeps the order of the requested bus numbers
+        Map<Integer, BusEntity> busesByNumber = busCache.getAllByNumber(new HashSet<>(busNumbers));
+
         List<BusEntity> buses = new ArrayList<>();
-        for(Integer busNumber : busNumbers){
-            Optional<BusEntity> busEntityOptional = busRepository.findBusEntityByBusNumber(busNumber);
-            if(busEntityOptional.isPresent()){
-                BusEntity busEntity = busEntityOptional.get();
+        List<Integer> missingNumbers = new ArrayList<>();
+        // a bus is contained at most once per route
+        for(Integer busNumber : busNumbers.stream().distinct().toList()){
+            BusEntity busEntity = busesByNumber.get(busNumber);
+            if(busEntity != null){
                 buses.add(busEntity);
+            } else {
+                missingNumbers.add(busNumber);
             }
         }
-        if(buses.size() < busNumbers.size()) {
-            List<Integer> missingNumbers = new ArrayList<>(busNumbers);
-            missingNumbers.removeAll(buses.stream().map(BusEntity::getBusNumber).toList());
+        if(!missingNumbers.isEmpty()) {
             throw new BusNumbersNotExistsException(missingNumbers);
         }
         RouteEntity routeEntity = new RouteEntity();
@@ -191,4 +483,3 @@ public class RouteService {
         return Optional.of(routeEntity);
     }
 }
-
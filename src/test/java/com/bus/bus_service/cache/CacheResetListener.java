@@ -0,0 +1,20 @@
+package com.bus.bus_service.cache;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestExecutionListener;
+
+/**
+ * Empties the caches before every test. The tests write and roll back buses and routes with the repositories,
+ * so the caches would keep results of earlier tests.
+ */
+public class CacheResetListener implements TestExecutionListener {
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        ApplicationContext applicationContext = testContext.getApplicationContext();
+        applicationContext.getBeanProvider(BusCache.class).ifAvailable(BusCache::evictAll);
+        applicationContext.getBeanProvider(RouteQueryCache.class).ifAvailable(RouteQueryCache::evictAll);
+        applicationContext.getBeanProvider(ResponseCacheFilter.class).ifAvailable(ResponseCacheFilter::evictAll);
+    }
+}
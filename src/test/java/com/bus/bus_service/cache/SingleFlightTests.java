@@ -0,0 +1,95 @@
+package com.bus.bus_service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTests {
+
+    private static final int CALLERS = 16;
+
+    @Test
+    void testConcurrentCallsAreCoalesced() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        List<Future<Integer>> results = callConcurrently(singleFlight, () -> {
+            executions.incrementAndGet();
+            awaitCoalescedCalls(singleFlight);
+            return 42;
+        });
+
+        for (Future<Integer> result : results) {
+            assertEquals(42, result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1, singleFlight.executedCount());
+        assertEquals(CALLERS - 1, singleFlight.coalescedCount());
+
+        // a completed computation is not shared with later calls
+        assertEquals(43, singleFlight.execute("HTW Saar", () -> 43));
+        assertEquals(2, singleFlight.executedCount());
+    }
+
+    @Test
+    void testExceptionIsSharedWithCoalescedCalls() throws Exception {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        List<Future<Integer>> results = callConcurrently(singleFlight, () -> {
+            awaitCoalescedCalls(singleFlight);
+            throw new IllegalStateException("query failed");
+        });
+
+        for (Future<Integer> result : results) {
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> result.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, exception.getCause());
+        }
+        assertEquals(1, singleFlight.executedCount());
+        assertEquals(7, singleFlight.execute("HTW Saar", () -> 7));
+    }
+
+    @Test
+    void testDifferentKeysAreNotCoalesced() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        int result = singleFlight.execute("HTW Saar", () -> singleFlight.execute("Rathaus", () -> 1) + 1);
+
+        assertEquals(2, result);
+        assertEquals(2, singleFlight.executedCount());
+        assertEquals(0, singleFlight.coalescedCount());
+    }
+
+    private static List<Future<Integer>> callConcurrently(SingleFlight<String, Integer> singleFlight,
+                                                          Supplier<Integer> computation) {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("HTW Saar", computation)));
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // keeps the computation running until every other caller joined it
+    private static void awaitCoalescedCalls(SingleFlight<String, Integer> singleFlight) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (singleFlight.coalescedCount() < CALLERS - 1 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
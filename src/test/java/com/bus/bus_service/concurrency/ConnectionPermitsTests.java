@@ -0,0 +1,61 @@
+package com.bus.bus_service.concurrency;
+
+import com.bus.bus_service.exceptions.DatabaseBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPermitsTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConnectionPermits connectionPermits = new ConnectionPermits(meterRegistry, 2, Duration.ofMillis(50));
+
+    @Test
+    void testNewTransactionsAreBounded() {
+        SimpleTransactionStatus first = new SimpleTransactionStatus(true);
+        SimpleTransactionStatus second = new SimpleTransactionStatus(true);
+        connectionPermits.beforeBegin(first);
+        connectionPermits.beforeBegin(second);
+        assertEquals(0.0, meterRegistry.get("database.permits.available").gauge().value());
+
+        assertThrows(DatabaseBusyException.class,
+            () -> connectionPermits.beforeBegin(new SimpleTransactionStatus(true)));
+
+        connectionPermits.afterCommit(first, null);
+        connectionPermits.beforeBegin(new SimpleTransactionStatus(true));
+        connectionPermits.afterRollback(second, null);
+        assertEquals(1.0, meterRegistry.get("database.permits.available").gauge().value());
+        assertEquals(4, meterRegistry.get("database.permits.wait").timer().count());
+    }
+
+    @Test
+    void testJoinedTransactionsNeedNoPermit() {
+        SimpleTransactionStatus outer = new SimpleTransactionStatus(true);
+        connectionPermits.beforeBegin(outer);
+        connectionPermits.beforeBegin(new SimpleTransactionStatus(true));
+
+        // a transaction joining an existing one is not new and does not wait
+        SimpleTransactionStatus joined = new SimpleTransactionStatus(false);
+        connectionPermits.beforeBegin(joined);
+        connectionPermits.afterCommit(joined, null);
+        assertEquals(0.0, meterRegistry.get("database.permits.available").gauge().value());
+
+        connectionPermits.afterCommit(outer, null);
+        // a second completion callback does not release another permit
+        connectionPermits.afterRollback(outer, null);
+        assertEquals(1.0, meterRegistry.get("database.permits.available").gauge().value());
+    }
+
+    @Test
+    void testFailedBeginReleasesPermit() {
+        SimpleTransactionStatus transaction = new SimpleTransactionStatus(true);
+        connectionPermits.beforeBegin(transaction);
+        connectionPermits.afterBegin(transaction, new IllegalStateException("no connection"));
+
+        assertEquals(2.0, meterRegistry.get("database.permits.available").gauge().value());
+    }
+}
@@ -0,0 +1,158 @@
+package com.bus.bus_service.graph;
+
+import com.bus.bus_service.graph.RouteGraph.BusInfo;
+import com.bus.bus_service.graph.RouteGraph.RouteEdges;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteGraphBuilderTests {
+
+    private final StationDictionary stations = new StationDictionary();
+    private final RouteGraphBuilder builder = new RouteGraphBuilder(stations);
+
+    @Test
+    void testHubStationWithManyEdges() {
+        // like the power-law networks of the generator, most routes start at a single hub
+        int hub = stations.intern("Hub");
+        int rathaus = stations.intern("Rathaus");
+        for (long busId = 0; busId <= 1000; busId++) {
+            builder.putBus(busId, new BusInfo((int) busId, "Bus " + busId, 1000 - busId, 50f));
+        }
+        for (long routeId = 0; routeId < 100_000; routeId++) {
+            builder.putRoute(routeId, new RouteEdges(hub, stations.intern("Stop " + routeId % 100),
+                new long[] { routeId % 1000 }));
+        }
+        builder.putRoute(100_000, new RouteEdges(rathaus, hub, new long[] { 1000 }));
+
+        RouteGraph graph = assertTimeoutPreemptively(Duration.ofSeconds(10), builder::build);
+        assertEquals(100_001, graph.edgeCount());
+        assertEquals(100_000, graph.endEdge(hub) - graph.firstEdge(hub));
+        assertSortedByPrice(graph, hub);
+
+        // a change at another station leaves the edges of the hub where they are
+        builder.putBus(1000, new BusInfo(1000, "Bus 1000", 2f, 50f));
+        RouteGraph updated = builder.build();
+        assertEquals(graph.firstEdge(hub), updated.firstEdge(hub));
+        assertEquals(graph.endEdge(hub), updated.endEdge(hub));
+        assertEquals(2f, updated.kmPrice(updated.firstEdge(rathaus)));
+
+        builder.putBus(999, new BusInfo(999, "Bus 999", 5000f, 50f));
+        updated = assertTimeoutPreemptively(Duration.ofSeconds(10), builder::build);
+        assertSortedByPrice(updated, hub);
+        assertEquals(5000f, updated.kmPrice(updated.endEdge(hub) - 1));
+        assertEquals(2f, updated.kmPrice(updated.firstEdge(rathaus)));
+        assertEquals(100_001, updated.edgeCount());
+    }
+
+    @Test
+    void testBuildsAreSnapshots() {
+        int htw = stations.intern("HTW Saar");
+        int rathaus = stations.intern("Rathaus");
+        int hauptbahnhof = stations.intern("Hauptbahnhof");
+        builder.putBus(1, new BusInfo(122, "Harvey", 1.5f, 30f));
+        builder.putBus(2, new BusInfo(124, "Harvey", 4.1f, 70f));
+        builder.putBus(3, new BusInfo(125, "Tom", 2.0f, 50f));
+        builder.putRoute(1, new RouteEdges(htw, rathaus, new long[] { 1, 2 }));
+        builder.putRoute(2, new RouteEdges(rathaus, hauptbahnhof, new long[] { 3 }));
+        RouteGraph graph = builder.build();
+
+        builder.putBus(1, new BusInfo(122, "Harvey", 5.0f, 30f));
+        RouteGraph updated = builder.build();
+        assertEquals(List.of(4.1f, 5.0f), prices(updated, htw));
+        // the previous graph is not changed by later builds
+        assertEquals(List.of(1.5f, 4.1f), prices(graph, htw));
+
+        // a new name does not change any edge
+        builder.putBus(3, new BusInfo(125, "Max", 2.0f, 50f));
+        RouteGraph renamed = builder.build();
+        assertEquals(updated.firstEdge(htw), renamed.firstEdge(htw));
+        assertEquals(updated.firstEdge(rathaus), renamed.firstEdge(rathaus));
+        assertEquals("Max", renamed.bus(renamed.firstEdge(rathaus)).name());
+        assertEquals("Tom", updated.bus(updated.firstEdge(rathaus)).name());
+
+        builder.removeBus(2);
+        builder.removeRoute(2);
+        RouteGraph removed = builder.build();
+        assertEquals(1, removed.edgeCount());
+        assertEquals(List.of(5.0f), prices(removed, htw));
+        assertEquals(removed.firstEdge(rathaus), removed.endEdge(rathaus));
+        assertSame(removed, builder.build());
+    }
+
+    @Test
+    void testIncrementalBuildsMatchFullBuild() {
+        Random random = new Random(42);
+        Map<Long, RouteEdges> routes = new HashMap<>();
+        Map<Long, BusInfo> buses = new HashMap<>();
+        for (int round = 0; round < 200; round++) {
+            for (int change = 0; change < 10; change++) {
+                long id = random.nextInt(50);
+                switch (random.nextInt(4)) {
+                    case 0 -> {
+                        // skewed starts, so some stations collect many edges
+                        int start = stations.intern("Stop " + (int) Math.pow(random.nextInt(100), 2) / 1000);
+                        RouteEdges route = new RouteEdges(start, stations.intern("Stop " + random.nextInt(20)),
+                            random.longs(random.nextInt(4), 0, 50).distinct().toArray());
+                        routes.put(id, route);
+                        builder.putRoute(id, route);
+                    }
+                    case 1 -> {
+                        routes.remove(id);
+                        builder.removeRoute(id);
+                    }
+                    case 2 -> {
+                        BusInfo bus = new BusInfo((int) id, "Bus " + random.nextInt(3), random.nextInt(10),
+                            20 + random.nextInt(80));
+                        buses.put(id, bus);
+                        builder.putBus(id, bus);
+                    }
+                    default -> {
+                        buses.remove(id);
+                        builder.removeBus(id);
+                    }
+                }
+            }
+            assertSameEdges(RouteGraph.build(stations, routes, buses), builder.build());
+        }
+    }
+
+    private static void assertSortedByPrice(RouteGraph graph, int station) {
+        for (int edge = graph.firstEdge(station) + 1; edge < graph.endEdge(station); edge++) {
+            assertTrue(graph.kmPrice(edge - 1) <= graph.kmPrice(edge));
+        }
+    }
+
+    private static List<Float> prices(RouteGraph graph, int station) {
+        List<Float> prices = new ArrayList<>();
+        for (int edge = graph.firstEdge(station); edge < graph.endEdge(station); edge++) {
+            prices.add(graph.kmPrice(edge));
+        }
+        return prices;
+    }
+
+    private static void assertSameEdges(RouteGraph expected, RouteGraph actual) {
+        assertEquals(expected.stationCount(), actual.stationCount());
+        assertEquals(expected.edgeCount(), actual.edgeCount());
+        for (int station = 0; station < expected.stationCount(); station++) {
+            assertSortedByPrice(actual, station);
+            assertEquals(edges(expected, station), edges(actual, station));
+        }
+    }
+
+    private static List<String> edges(RouteGraph graph, int station) {
+        List<String> edges = new ArrayList<>();
+        for (int edge = graph.firstEdge(station); edge < graph.endEdge(station); edge++) {
+            edges.add(graph.target(edge) + "-" + graph.routeId(edge) + "-" + graph.bus(edge));
+        }
+        edges.sort(null);
+        return edges;
+    }
+}
@@ -0,0 +1,67 @@
+package com.bus.bus_service.graph;
+
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.entities.RouteEntity;
+import com.bus.bus_service.graph.RouteGraph.BusInfo;
+import com.bus.bus_service.graph.RouteGraph.RouteEdges;
+import com.bus.bus_service.seed.NetworkGenerator;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteGraphMemoryTest {
+
+    private static final int STATIONS = 300;
+    private static final int BUSES = 500;
+    private static final int ROUTES = 5000;
+    private static final int BUSES_PER_ROUTE = 3;
+
+    private final Logger logger = LoggerFactory.getLogger(RouteGraphMemoryTest.class);
+
+    @Test
+    void testGraphIsSmallerThanEntityGraph() {
+        // station names loaded from the database are separate String instances in every entity, like the generated ones
+        List<RouteEntity> routeEntities = NetworkGenerator.generate(new NetworkGenerator.Settings(42, STATIONS, ROUTES,
+            BUSES, BUSES_PER_ROUTE, BUSES_PER_ROUTE, NetworkGenerator.Distribution.UNIFORM, 1.0, 1f, 5f, 20f, 100f))
+            .routes();
+
+        StationDictionary stations = new StationDictionary();
+        Map<Long, RouteEdges> routes = new HashMap<>();
+        Map<Long, BusInfo> buses = new HashMap<>();
+        for (RouteEntity route : routeEntities) {
+            routes.put(route.getRouteId(), new RouteEdges(stations.intern(route.getStart()),
+                stations.intern(route.getDestination()),
+                route.getBuses().stream().mapToLong(BusEntity::getBusId).toArray()));
+            route.getBuses().forEach(bus -> buses.put(bus.getBusId(),
+                new BusInfo(bus.getBusNumber(), bus.getName(), bus.getKmPrice(), bus.getAverageSpeed())));
+        }
+        RouteGraph graph = RouteGraph.build(stations, routes, buses);
+
+        assertEquals(ROUTES * BUSES_PER_ROUTE, graph.edgeCount());
+        RouteEntity first = routeEntities.getFirst();
+        int start = graph.stationId(first.getStart());
+        boolean found = false;
+        for (int edge = graph.firstEdge(start); edge < graph.endEdge(start); edge++) {
+            assertEquals(first.getStart(), graph.stationName(start));
+            if (edge > graph.firstEdge(start)) {
+                assertTrue(graph.kmPrice(edge - 1) <= graph.kmPrice(edge));
+            }
+            found |= graph.routeId(edge) == first.getRouteId()
+                && graph.stationName(graph.target(edge)).equals(first.getDestination());
+        }
+        assertTrue(found);
+
+        long entityBytes = GraphLayout.parseInstance(routeEntities).totalSize();
+        long graphBytes = GraphLayout.parseInstance(graph).totalSize();
+        logger.info("Route network with {} routes and {} connections - entity graph: {} bytes, CSR graph: {} bytes",
+            ROUTES, graph.edgeCount(), entityBytes, graphBytes);
+        assertTrue(graphBytes * 2 < entityBytes);
+    }
+}
@@ -8,13 +8,17 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -136,4 +140,58 @@ public class BusControllerIntegrationTests {
         assertTrue(busRepository.findBusEntityByBusNumber(122).isPresent());
     }
 
+    @Test
+    @Transactional
+    void getAllBussesPaginated() throws Exception {
+        busRepository.save(new BusEntity(122, "Harvey", 1.5f, 50f));
+        busRepository.save(new BusEntity(123, "Harvey", 1.5f, 50f));
+        busRepository.save(new BusEntity(124, "Harvey", 1.5f, 50f));
+
+        MvcResult firstPage = mockMvc.perform(get("/api/v1/bus?limit=2")
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].busNumber").value(122))
+            .andExpect(jsonPath("$[1].busNumber").value(123))
+            .andExpect(header().exists("X-Continuation-Token"))
+            .andReturn();
+
+        String continuation = firstPage.getResponse().getHeader("X-Continuation-Token");
+        mockMvc.perform(get("/api/v1/bus?limit=2&continuation=" + continuation)
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].busNumber").value(124))
+            .andExpect(header().doesNotExist("X-Continuation-Token"));
+    }
+
+    @Test
+    @Transactional
+    void createBusesInBatch() throws Exception {
+        busRepository.save(new BusEntity(122, "Harvey", 1.5f, 50f));
+
+        String busesJSON = """
+            [
+              {"busNumber": 123, "name": "Tom", "kmPrice": 3.5, "averageSpeed": 50},
+              {"busNumber": 122, "name": "Max", "kmPrice": 1.5, "averageSpeed": 70},
+              {"busNumber": 124, "name": "Max", "kmPrice": -1.5, "averageSpeed": 70},
+              {"busNumber": 123, "name": "Tim", "kmPrice": 2.5, "averageSpeed": 60}
+            ]
+            """;
+
+        mockMvc.perform(post("/api/v1/bus/batch")
+                .content(busesJSON).contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(4)))
+            .andExpect(jsonPath("$[0].status").value("CREATED"))
+            .andExpect(jsonPath("$[0].bus.name").value("Tom"))
+            .andExpect(jsonPath("$[1].status").value("DUPLICATE"))
+            .andExpect(jsonPath("$[2].status").value("INVALID"))
+            .andExpect(jsonPath("$[2].errors[0]").value("kmPrice must be positive"))
+            .andExpect(jsonPath("$[3].status").value("DUPLICATE"));
+
+        assertEquals(2, busRepository.findAll().size());
+        assertEquals("Tom", busRepository.findBusEntityByBusNumber(123).orElseThrow().getName());
+    }
+
 }
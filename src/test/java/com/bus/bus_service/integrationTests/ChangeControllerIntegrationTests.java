@@ -0,0 +1,137 @@
+package com.bus.bus_service.integrationTests;
+
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.repository.BusRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ChangeControllerIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private BusRepository busRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @Transactional
+    void getAllRoutesAndBusesWithoutToken() throws Exception {
+        BusEntity bus = busRepository.save(new BusEntity(122, "Harvey", 1.5f, 50f));
+        long routeId = createRoute("HTW Saar", "Rathaus");
+
+        mockMvc.perform(get("/api/v1/changes"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.complete").value(true))
+            .andExpect(jsonPath("$.routes", hasSize(1)))
+            .andExpect(jsonPath("$.routes[0].routeId").value(routeId))
+            .andExpect(jsonPath("$.routes[0].buses[0].busNumber").value(122))
+            .andExpect(jsonPath("$.buses", hasSize(1)))
+            .andExpect(jsonPath("$.buses[0].busId").value(bus.getBusId()))
+            .andExpect(jsonPath("$.deletedRouteIds", hasSize(0)))
+            .andExpect(jsonPath("$.token").isNotEmpty());
+    }
+
+    @Test
+    @Transactional
+    void getCompactedChangesSinceToken() throws Exception {
+        BusEntity bus = busRepository.save(new BusEntity(122, "Harvey", 1.5f, 50f));
+        // not changed after the token, so they are not part of the changes
+        for (int busNumber = 123; busNumber < 126; busNumber++) {
+            busRepository.save(new BusEntity(busNumber, "Tom", 2.0f, 50f));
+        }
+        // its bus is changed after the token
+        long busRouteId = createRoute("HTW Saar", "Rathaus");
+        String token = getToken();
+
+        long routeId = createRoute("HTW Saar", "Rathaus");
+        mockMvc.perform(put("/api/v1/route/" + routeId).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"busNumber\": [122], \"start\": \"HTW Saar\", \"destination\": \"Hauptbahnhof\"}"))
+            .andExpect(status().isOk());
+        long deletedRouteId = createRoute("Rathaus", "HTW Saar");
+        mockMvc.perform(delete("/api/v1/route/" + deletedRouteId)).andExpect(status().isOk());
+        mockMvc.perform(put("/api/v1/bus/" + bus.getBusId()).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"busNumber\": 122, \"name\": \"Tom\", \"kmPrice\": 2.5, \"averageSpeed\": 50.0}"))
+            .andExpect(status().isOk());
+
+        String response = mockMvc.perform(get("/api/v1/changes").param("since", token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.complete").value(false))
+            .andExpect(jsonPath("$.routes", hasSize(2)))
+            .andExpect(jsonPath("$.routes[?(@.routeId == %d)].destination", routeId).value("Hauptbahnhof"))
+            .andExpect(jsonPath("$.routes[?(@.routeId == %d)].buses[0].kmPrice", busRouteId).value(2.5))
+            .andExpect(jsonPath("$.deletedRouteIds", hasSize(1)))
+            .andExpect(jsonPath("$.deletedRouteIds[0]").value(deletedRouteId))
+            .andExpect(jsonPath("$.buses", hasSize(1)))
+            .andExpect(jsonPath("$.buses[0].name").value("Tom"))
+            .andExpect(jsonPath("$.deletedBusIds", hasSize(0)))
+            .andReturn().getResponse().getContentAsString();
+        String nextToken = objectMapper.readTree(response).get("token").asText();
+
+        mockMvc.perform(get("/api/v1/changes").param("since", nextToken))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.routes", hasSize(0)))
+            .andExpect(jsonPath("$.deletedRouteIds", hasSize(0)))
+            .andExpect(jsonPath("$.buses", hasSize(0)))
+            .andExpect(jsonPath("$.deletedBusIds", hasSize(0)));
+    }
+
+    @Test
+    @Transactional
+    void getNetworkIfChangesExceedIt() throws Exception {
+        BusEntity bus = busRepository.save(new BusEntity(122, "Harvey", 1.5f, 50f));
+        String token = getToken();
+        for (int i = 0; i < 3; i++) {
+            long routeId = createRoute("HTW Saar", "Rathaus");
+            mockMvc.perform(delete("/api/v1/route/" + routeId)).andExpect(status().isOk());
+        }
+
+        // three deleted routes are more than the single bus left
+        mockMvc.perform(get("/api/v1/changes").param("since", token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.complete").value(true))
+            .andExpect(jsonPath("$.routes", hasSize(0)))
+            .andExpect(jsonPath("$.deletedRouteIds", hasSize(0)))
+            .andExpect(jsonPath("$.buses", hasSize(1)))
+            .andExpect(jsonPath("$.buses[0].busId").value(bus.getBusId()))
+            .andExpect(jsonPath("$.token").isNotEmpty());
+    }
+
+    @Test
+    void getChangesWithInvalidToken() throws Exception {
+        mockMvc.perform(get("/api/v1/changes").param("since", "abc"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.continuation").value("abc"));
+    }
+
+    private long createRoute(String start, String destination) throws Exception {
+        String response = mockMvc.perform(post("/api/v1/route").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"busNumber\": [122], \"start\": \"" + start + "\", \"destination\": \"" + destination + "\"}"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("routeId").asLong();
+    }
+
+    private String getToken() throws Exception {
+        String response = mockMvc.perform(get("/api/v1/changes"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("token").asText();
+    }
+}
@@ -0,0 +1,175 @@
+package com.bus.bus_service.integrationTests;
+
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.entities.RouteEntity;
+import com.bus.bus_service.graph.RouteNetworkIndex;
+import com.bus.bus_service.repository.BusRepository;
+import com.bus.bus_service.repository.RouteRepository;
+import com.bus.bus_service.seed.NetworkGenerator;
+import com.bus.bus_service.service.BusService;
+import com.bus.bus_service.service.RouteService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class JourneyControllerIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private RouteService routeService;
+    @Autowired
+    private BusService busService;
+    @Autowired
+    private RouteRepository routeRepository;
+    @Autowired
+    private BusRepository busRepository;
+    @Autowired
+    private RouteNetworkIndex routeNetworkIndex;
+    @Autowired
+    private NetworkGenerator networkGenerator;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // the index is updated after commit, so the test data is committed and removed afterwards
+    @AfterEach
+    void cleanUp() {
+        routeRepository.deleteAll();
+        busRepository.deleteAll();
+        routeNetworkIndex.rebuild();
+    }
+
+    @Test
+    void getJourney() throws Exception {
+        BusEntity slowBus = busService.createBus(new BusEntity(122, "Harvey", 1.0f, 20f)).orElseThrow();
+        BusEntity fastBus = busService.createBus(new BusEntity(124, "Harvey", 5.0f, 80f)).orElseThrow();
+        BusEntity cheapBus = busService.createBus(new BusEntity(126, "Harvey", 0.5f, 400f)).orElseThrow();
+        RouteEntity direct = routeService.createRoute(new RouteEntity("HTW Saar", "Rathaus", List.of(fastBus)));
+        RouteEntity firstLeg = routeService.createRoute(new RouteEntity("HTW Saar", "Hauptbahnhof", List.of(slowBus)));
+        routeService.createRoute(new RouteEntity("Hauptbahnhof", "Rathaus", List.of(cheapBus)));
+
+        mockMvc.perform(get("/api/v1/journey?from=HTW Saar&to=Rathaus"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.transfers").value(0))
+            .andExpect(jsonPath("$.legs", hasSize(1)))
+            .andExpect(jsonPath("$.legs[0].routeId").value(direct.getRouteId()))
+            .andExpect(jsonPath("$.legs[0].bus.busNumber").value(124));
+
+        mockMvc.perform(get("/api/v1/journey?from=HTW Saar&to=Rathaus&criteria=price"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.transfers").value(1))
+            .andExpect(jsonPath("$.totalKmPrice").value(1.5))
+            .andExpect(jsonPath("$.legs[0].routeId").value(firstLeg.getRouteId()))
+            .andExpect(jsonPath("$.legs[1].bus.busNumber").value(126));
+
+        mockMvc.perform(get("/api/v1/journey?from=HTW Saar&to=Rathaus&criteria=speed"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.averageSpeed").value(80.0))
+            .andExpect(jsonPath("$.legs[0].bus.busNumber").value(124));
+
+        // bus and route writes are visible in the index
+        busService.updateBus(slowBus.getBusId(), new BusEntity(122, "Harvey", 1.0f, 200f));
+        mockMvc.perform(get("/api/v1/journey?from=HTW Saar&to=Rathaus&criteria=speed"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.legs", hasSize(2)))
+            .andExpect(jsonPath("$.legs[0].bus.averageSpeed").value(200.0));
+
+        routeService.deleteRouteById(firstLeg.getRouteId());
+        mockMvc.perform(get("/api/v1/journey?from=HTW Saar&to=Rathaus&criteria=price"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.legs", hasSize(1)));
+
+        routeService.deleteRouteById(direct.getRouteId());
+        mockMvc.perform(get("/api/v1/journey?from=HTW Saar&to=Rathaus"))
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.from").value("HTW Saar"));
+
+        mockMvc.perform(get("/api/v1/journey?from=HTW Saar&to=Rathaus&criteria=distance"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getJourneyMatrix() throws Exception {
+        BusEntity slowBus = busService.createBus(new BusEntity(122, "Harvey", 1.0f, 20f)).orElseThrow();
+        BusEntity cheapBus = busService.createBus(new BusEntity(126, "Harvey", 0.5f, 40f)).orElseThrow();
+        routeService.createRoute(new RouteEntity("HTW Saar", "Hauptbahnhof", List.of(slowBus)));
+        routeService.createRoute(new RouteEntity("Hauptbahnhof", "Rathaus", List.of(cheapBus, slowBus)));
+
+        String requestJSON = """
+            {
+              "stations": ["HTW Saar", "Hauptbahnhof", "Rathaus", "Unknown"],
+              "criteria": "price"
+            }
+            """;
+        mockMvc.perform(post("/api/v1/journey/matrix").content(requestJSON).contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.costs", hasSize(4)))
+            .andExpect(jsonPath("$.costs[0][0]").value(0.0))
+            .andExpect(jsonPath("$.costs[0][1]").value(1.0))
+            .andExpect(jsonPath("$.costs[0][2]").value(1.5))
+            .andExpect(jsonPath("$.costs[2][0]").isEmpty())
+            .andExpect(jsonPath("$.costs[0][3]").isEmpty())
+            .andExpect(jsonPath("$.costs[3][3]").isEmpty());
+
+        mockMvc.perform(post("/api/v1/journey/matrix").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stations\": [\"HTW Saar\", \"Rathaus\"], \"criteria\": \"transfers\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.costs[0][1]").value(1.0));
+
+        mockMvc.perform(post("/api/v1/journey/matrix").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stations\": []}"))
+            .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/v1/journey/matrix").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stations\": [\"HTW Saar\", null]}"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getJourneyMatrixMatchesSingleJourneys() throws Exception {
+        NetworkGenerator.SeededNetwork network = networkGenerator.seed(NetworkGenerator.Settings.of(11, 100, 1000, 200));
+        routeNetworkIndex.rebuild();
+        List<String> stations = network.stations().subList(0, 10);
+
+        String matrixJSON = mockMvc.perform(post("/api/v1/journey/matrix").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("stations", stations, "criteria", "price"))))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        JsonNode costs = objectMapper.readTree(matrixJSON).get("costs");
+        for (int i = 0; i < stations.size(); i++) {
+            for (int j = 0; j < stations.size(); j++) {
+                if (i == j) {
+                    continue;
+                }
+                String journeyJSON = mockMvc.perform(get("/api/v1/journey").param("from", stations.get(i))
+                        .param("to", stations.get(j)).param("criteria", "price"))
+                    .andReturn().getResponse().getContentAsString();
+                JsonNode journey = objectMapper.readTree(journeyJSON);
+                if (costs.get(i).get(j).isNull()) {
+                    assertTrue(journey.has("error"));
+                } else {
+                    assertEquals(costs.get(i).get(j).floatValue(), journey.get("totalKmPrice").floatValue(), 0.01f);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.bus.bus_service.integrationTests;
+
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.repository.BusRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureObservability
+@AutoConfigureMockMvc
+public class MetricsIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private BusRepository busRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @Transactional
+    void exportMetrics() throws Exception {
+        busRepository.save(new BusEntity(122, "Harvey", 1.5f, 50f));
+        mockMvc.perform(get("/api/v1/bus?limit=10")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/route/from/HTW Saar")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("bus_controller_seconds_count{class=\"com.bus.bus_service.controller.BusController\"")))
+            .andExpect(content().string(containsString("route_service_seconds_count{class=\"com.bus.bus_service.service.RouteService\"")))
+            .andExpect(content().string(containsString("http_server_requests_statements_count{method=\"GET\",status=\"200\",uri=\"/api/v1/bus\"}")))
+            .andExpect(content().string(containsString("hibernate_statements_total")))
+            .andExpect(content().string(containsString("hibernate_entities_loads_total")))
+            .andExpect(content().string(containsString("hibernate_collections_fetches_total")))
+            .andExpect(content().string(containsString("hikaricp_connections_active")))
+            .andExpect(content().string(containsString("cache_gets_total{cache=\"buses.by-number\"")))
+            .andExpect(content().string(containsString("cache_gets_total{cache=\"routes\"")))
+            .andExpect(content().string(containsString("cache_gets_total{cache=\"responses\"")))
+            .andExpect(content().string(containsString("cache_loads_total{cache=\"routes\",result=\"coalesced\"")))
+            .andExpect(content().string(containsString("database_permits_wait_seconds_count")));
+    }
+
+    @Test
+    void recordConnectionHoldTime() throws Exception {
+        mockMvc.perform(get("/api/v1/bus")).andExpect(status().isOk());
+
+        Timer holdTime = meterRegistry.get("http.server.requests.connection.hold")
+            .tags("method", "GET", "uri", "/api/v1/bus", "status", "200").timer();
+        assertTrue(holdTime.count() >= 1);
+        assertTrue(holdTime.totalTime(TimeUnit.NANOSECONDS) > 0);
+        mockMvc.perform(get("/actuator/prometheus"))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("http_server_requests_connection_hold_seconds_count")));
+    }
+
+    @Test
+    void recordConnectionPermitWaits() throws Exception {
+        Timer permitWait = meterRegistry.get("database.permits.wait").timer();
+        long waits = permitWait.count();
+        mockMvc.perform(get("/api/v1/bus")).andExpect(status().isOk());
+
+        assertTrue(permitWait.count() > waits);
+        assertTrue(meterRegistry.get("database.permits.available").gauge().value() > 0);
+    }
+}
@@ -0,0 +1,96 @@
+package com.bus.bus_service.integrationTests;
+
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.repository.BusRepository;
+import com.bus.bus_service.repository.RouteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static com.bus.bus_service.integrationTests.SqlStatementAssertions.assertMaxStatements;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ResponseCacheIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private BusRepository busRepository;
+    @Autowired
+    private RouteRepository routeRepository;
+
+    @AfterEach
+    void cleanUp() {
+        routeRepository.deleteAll();
+        busRepository.deleteAll();
+    }
+
+    @Test
+    void serveCachedResponses() throws Exception {
+        busRepository.save(new BusEntity(122, "Harvey", 1.5f, 50f));
+
+        MvcResult first = mockMvc.perform(get("/api/v1/bus"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$[0].busNumber").value(122))
+            .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        MvcResult second = assertMaxStatements(0, () -> mockMvc.perform(get("/api/v1/bus"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andReturn());
+        assertArrayEquals(first.getResponse().getContentAsByteArray(), second.getResponse().getContentAsByteArray());
+
+        MvcResult notModified = assertMaxStatements(0, () -> mockMvc.perform(get("/api/v1/bus")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andReturn());
+        assertEquals(0, notModified.getResponse().getContentAsByteArray().length);
+    }
+
+    @Test
+    void changeEtagAfterWrite() throws Exception {
+        busRepository.save(new BusEntity(122, "Harvey", 1.5f, 50f));
+        String etag = mockMvc.perform(get("/api/v1/bus"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(post("/api/v1/bus").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"busNumber\": 1, \"name\": \"Tom\", \"kmPrice\": 3.5, \"averageSpeed\": 50.0}"))
+            .andExpect(status().isOk());
+
+        String newEtag = mockMvc.perform(get("/api/v1/bus").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newEtag);
+    }
+
+    @Test
+    void doNotCacheErrors() throws Exception {
+        mockMvc.perform(get("/api/v1/bus?limit=abc"))
+            .andExpect(status().isBadRequest())
+            .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+}
@@ -10,17 +10,22 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.*;
@@ -185,6 +190,50 @@ public class RouteControllerIntegrationTests {
         assertTrue(routeRepository.findById(routeEntity.getRouteId()).isPresent());
     }
 
+    @Test
+    @Transactional
+    void addAndRemoveBusOfRoute() throws Exception {
+        BusEntity busEntity1 = new BusEntity(122, "Harvey", 1.5f, 50f);
+        BusEntity busEntity2 = new BusEntity(123, "Max", 2.5f, 70f);
+        busRepository.save(busEntity1);
+        busRepository.save(busEntity2);
+
+        RouteEntity routeEntity = new RouteEntity("HTW Saar", "Rathaus", new ArrayList<>(List.of(busEntity1)));
+        routeRepository.save(routeEntity);
+        Long routeId = routeEntity.getRouteId();
+
+        mockMvc.perform(put("/api/v1/route/add_bus/123/to_route/" + routeId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.routeId").value(routeId))
+            .andExpect(jsonPath("$.buses", hasSize(2)))
+            .andExpect(jsonPath("$.buses[1].busNumber").value(123));
+
+        //the bus is contained at most once
+        mockMvc.perform(put("/api/v1/route/add_bus/123/to_route/" + routeId))
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.bus_Number").value(123));
+        assertEquals(2, routeRepository.getRouteEntitiesByStart("HTW Saar").getFirst().getBuses().size());
+
+        mockMvc.perform(delete("/api/v1/route/remove_bus/122/from_route/" + routeId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.buses", hasSize(1)))
+            .andExpect(jsonPath("$.buses[0].busNumber").value(123));
+
+        mockMvc.perform(delete("/api/v1/route/remove_bus/122/from_route/" + routeId))
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.error").value("The specified route does not contain the specified bus"));
+        mockMvc.perform(delete("/api/v1/route/remove_bus/124/from_route/" + routeId))
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.missing_Number").value(124));
+        mockMvc.perform(delete("/api/v1/route/remove_bus/123/from_route/" + (routeId + 1)))
+            .andExpect(status().isNotFound());
+
+        //the bus itself still exists
+        assertTrue(busRepository.existsByBusNumber(122));
+        assertEquals(List.of(123), routeRepository.getRouteEntitiesByStart("HTW Saar").getFirst().getBuses().stream()
+            .map(BusEntity::getBusNumber).toList());
+    }
+
     @Test
     @Transactional
     void getAllRoutesSortedByPrice() throws Exception {
@@ -237,4 +286,259 @@ public class RouteControllerIntegrationTests {
             .andExpect(jsonPath("$", hasSize(1)))
             .andExpect(jsonPath("$[0].buses[0].kmPrice").value(1.5));
     }
+
+    @Test
+    @Transactional
+    void getAllRoutesPaginated() throws Exception {
+        BusEntity busEntity = new BusEntity(122, "Harvey", 1.5f, 30f);
+        busRepository.save(busEntity);
+        routeRepository.save(new RouteEntity("HTW Saar", "Rathaus", List.of(busEntity)));
+        routeRepository.save(new RouteEntity("HTW Saar", "Johanneskirche", List.of(busEntity)));
+        routeRepository.save(new RouteEntity("HTW Saar", "Hauptbahnhof", List.of(busEntity)));
+
+        MvcResult firstPage = mockMvc.perform(get("/api/v1/route?limit=2")
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].destination").value("Rathaus"))
+            .andExpect(jsonPath("$[1].destination").value("Johanneskirche"))
+            .andExpect(header().exists("X-Continuation-Token"))
+            .andReturn();
+
+        String continuation = firstPage.getResponse().getHeader("X-Continuation-Token");
+        mockMvc.perform(get("/api/v1/route?limit=2&continuation=" + continuation)
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].destination").value("Hauptbahnhof"))
+            .andExpect(jsonPath("$[0].buses[0].busNumber").value(122))
+            .andExpect(header().doesNotExist("X-Continuation-Token"));
+    }
+
+    @Test
+    @Transactional
+    void getAllRoutesSortedByPricePaginated() throws Exception {
+        BusEntity busEntity = new BusEntity(122, "Harvey", 4.1f, 30f);
+        busRepository.save(busEntity);
+        BusEntity busEntity2 = new BusEntity(127, "Harvey", 1.5f, 50f);
+        busRepository.save(busEntity2);
+        BusEntity busEntity3 = new BusEntity(124, "Harvey", 3.2f, 70f);
+        busRepository.save(busEntity3);
+
+        routeRepository.save(new RouteEntity("HTW Saar", "Rathaus", List.of(busEntity, busEntity2)));
+        routeRepository.save(new RouteEntity("HTW Saar", "Rathaus", List.of(busEntity3)));
+
+        MvcResult firstPage = mockMvc.perform(get("/api/v1/route?sort=true&criteria=price&limit=2")
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].buses[0].kmPrice").value(1.5))
+            .andExpect(jsonPath("$[1].buses[0].kmPrice").value(3.2))
+            .andReturn();
+
+        String continuation = firstPage.getResponse().getHeader("X-Continuation-Token");
+        mockMvc.perform(get("/api/v1/route?sort=true&criteria=price&limit=2&continuation=" + continuation)
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].buses[0].kmPrice").value(4.1))
+            .andExpect(header().doesNotExist("X-Continuation-Token"));
+
+        // a token can only be used for the listing it was issued for
+        mockMvc.perform(get("/api/v1/route?limit=2&continuation=" + continuation)
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getAllRoutesFilteredByPricePaginated() throws Exception {
+        BusEntity busEntity = new BusEntity(122, "Harvey", 1.5f, 30f);
+        busRepository.save(busEntity);
+        BusEntity busEntity2 = new BusEntity(127, "Harvey", 3.2f, 50f);
+        busRepository.save(busEntity2);
+
+        routeRepository.save(new RouteEntity("HTW Saar", "Rathaus", List.of(busEntity, busEntity2)));
+        routeRepository.save(new RouteEntity("HTW Saar", "Hauptbahnhof", List.of(busEntity2)));
+        routeRepository.save(new RouteEntity("HTW Saar", "Johanneskirche", List.of(busEntity)));
+
+        MvcResult firstPage = mockMvc.perform(get("/api/v1/route?filter=true&criteria=price&limit=1")
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].destination").value("Rathaus"))
+            .andExpect(jsonPath("$[0].buses", hasSize(1)))
+            .andExpect(jsonPath("$[0].buses[0].kmPrice").value(1.5))
+            .andReturn();
+
+        String continuation = firstPage.getResponse().getHeader("X-Continuation-Token");
+        mockMvc.perform(get("/api/v1/route?filter=true&criteria=price&limit=1&continuation=" + continuation)
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].destination").value("Johanneskirche"));
+    }
+
+    @Test
+    void getAllRoutesWithInvalidContinuationToken() throws Exception {
+        mockMvc.perform(get("/api/v1/route?limit=2&continuation=invalid")
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/v1/route?limit=0")
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void getRoutesFromSortedBySpeedWithLimit() throws Exception {
+        BusEntity busEntity = new BusEntity(122, "Harvey", 1.5f, 30f);
+        busRepository.save(busEntity);
+        BusEntity busEntity2 = new BusEntity(127, "Harvey", 3.2f, 50f);
+        busRepository.save(busEntity2);
+        BusEntity busEntity3 = new BusEntity(124, "Harvey", 4.1f, 70f);
+        busRepository.save(busEntity3);
+
+        routeRepository.save(new RouteEntity("HTW Saar", "Rathaus", List.of(busEntity, busEntity2)));
+        routeRepository.save(new RouteEntity("HTW Saar", "Hauptbahnhof", List.of(busEntity3)));
+        routeRepository.save(new RouteEntity("Rathaus", "Hauptbahnhof", List.of(busEntity3)));
+
+        mockMvc.perform(get("/api/v1/route/from/HTW Saar?sort=true&criteria=speed&limit=2")
+                .contentType(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].destination").value("Hauptbahnhof"))
+            .andExpect(jsonPath("$[0].buses[0].averageSpeed").value(70))
+            .andExpect(jsonPath("$[1].destination").value("Rathaus"))
+            .andExpect(jsonPath("$[1].buses[0].averageSpeed").value(50));
+    }
+
+    @Test
+    @Transactional
+    void importRoutesFromNdjson() throws Exception {
+        busRepository.save(new BusEntity(122, "Harvey", 1.5f, 30f));
+        busRepository.save(new BusEntity(124, "Harvey", 4.1f, 70f));
+
+        StringBuilder routesNDJSON = new StringBuilder();
+        for (int i = 0; i < 1200; i++) {
+            routesNDJSON.append("{\"start\": \"HTW Saar\", \"destination\": \"Stop ").append(i)
+                .append("\", \"busNumber\": [122, 124]}\n");
+        }
+        routesNDJSON.append("\n");
+        routesNDJSON.append("{\"start\": \"HTW Saar\", \"destination\": \"Rathaus\", \"busNumber\": [41]}\n");
+        routesNDJSON.append("{\"start\": \"HTW Saar\"\n");
+        routesNDJSON.append("{\"start\": \"HTW Saar\", \"busNumber\": [122]}\n");
+
+        mockMvc.perform(post("/api/v1/route/import")
+                .content(routesNDJSON.toString()).contentType("application/x-ndjson"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.processedLines").value(1203))
+            .andExpect(jsonPath("$.importedRoutes").value(1200))
+            .andExpect(jsonPath("$.failedLines").value(3))
+            .andExpect(jsonPath("$.errors", hasSize(3)))
+            .andExpect(jsonPath("$.errors[0].line").value(1202))
+            .andExpect(jsonPath("$.errors[1].line").value(1203))
+            .andExpect(jsonPath("$.errors[2].line").value(1204))
+            .andExpect(jsonPath("$.errors[2].error").value("Destination cannot be empty"));
+
+        assertEquals(1200, routeRepository.count());
+        assertEquals(2, routeRepository.getRouteEntitiesByDestination("Stop 1199").getFirst().getBuses().size());
+    }
+
+    @Test
+    void importRoutesWithFailingChunk() throws Exception {
+        // every chunk is committed in its own transaction, so the data is not rolled back by the test
+        busRepository.save(new BusEntity(122, "Harvey", 1.5f, 30f));
+        try {
+            StringBuilder routesNDJSON = new StringBuilder();
+            for (int i = 0; i < 1200; i++) {
+                // the start of line 600 is longer than its column, so the insert of the second chunk fails
+                String start = i == 599 ? "HTW Saar ".repeat(40) : "HTW Saar";
+                routesNDJSON.append("{\"start\": \"").append(start).append("\", \"destination\": \"Stop ")
+                    .append(i).append("\", \"busNumber\": [122]}\n");
+            }
+
+            mockMvc.perform(post("/api/v1/route/import")
+                    .content(routesNDJSON.toString()).contentType("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.processedLines").value(1200))
+                .andExpect(jsonPath("$.importedRoutes").value(1199))
+                .andExpect(jsonPath("$.failedLines").value(1))
+                .andExpect(jsonPath("$.errors", hasSize(1)))
+                .andExpect(jsonPath("$.errors[0].line").value(600))
+                .andExpect(jsonPath("$.errors[0].error").value("The route could not be saved"));
+
+            // the other lines of the failed chunk are written one by one
+            assertEquals(1199, routeRepository.count());
+            assertTrue(routeRepository.getRouteEntitiesByDestination("Stop 599").isEmpty());
+            assertEquals(1, routeRepository.getRouteEntitiesByDestination("Stop 600").size());
+            assertEquals(1, routeRepository.getRouteEntitiesByDestination("Stop 1199").size());
+        } finally {
+            routeRepository.deleteAll();
+            busRepository.deleteAll();
+        }
+    }
+
+    @Test
+    @Transactional
+    void importRoutesFromCsv() throws Exception {
+        busRepository.save(new BusEntity(122, "Harvey", 1.5f, 30f));
+        busRepository.save(new BusEntity(124, "Harvey", 4.1f, 70f));
+
+        String routesCSV = """
+            start,destination,busNumber
+            HTW Saar,Rathaus,122;124
+            "Saarbrücken, Hauptbahnhof",HTW Saar,124
+            HTW Saar,Rathaus,abc
+            """;
+
+        mockMvc.perform(post("/api/v1/route/import")
+                .content(routesCSV).contentType("text/csv"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.processedLines").value(3))
+            .andExpect(jsonPath("$.importedRoutes").value(2))
+            .andExpect(jsonPath("$.errors[0].line").value(4));
+
+        assertEquals(2, routeRepository.count());
+        assertEquals(2, routeRepository.getRouteEntitiesByDestination("Rathaus").getFirst().getBuses().size());
+        assertEquals(124, routeRepository.getRouteEntitiesByStart("Saarbrücken, Hauptbahnhof").getFirst()
+            .getBuses().getFirst().getBusNumber());
+    }
+
+    @Test
+    void exportRoutes() throws Exception {
+        // the export is written in another thread, so the data has to be committed
+        BusEntity busEntity = busRepository.save(new BusEntity(122, "Harvey", 1.5f, 30f));
+        BusEntity busEntity2 = busRepository.save(new BusEntity(124, "Harvey", 4.1f, 70f));
+        RouteEntity routeEntity = routeRepository.save(new RouteEntity("HTW Saar", "Rathaus", List.of(busEntity, busEntity2)));
+        RouteEntity routeEntity2 = routeRepository.save(new RouteEntity("Saarbrücken, Hauptbahnhof", "HTW Saar", List.of()));
+        try {
+            MvcResult ndjsonResult = mockMvc.perform(get("/api/v1/route/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            String ndjson = mockMvc.perform(asyncDispatch(ndjsonResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+            List<String> lines = ndjson.lines().toList();
+            assertEquals(2, lines.size());
+            assertTrue(lines.getFirst().startsWith("{\"routeId\":" + routeEntity.getRouteId()));
+            assertTrue(lines.getFirst().contains("\"busNumber\":124"));
+            assertTrue(lines.get(1).contains("\"buses\":[]"));
+
+            MvcResult csvResult = mockMvc.perform(get("/api/v1/route/export?format=csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            String csv = mockMvc.perform(asyncDispatch(csvResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+            assertEquals(List.of("routeId,start,destination,busNumber",
+                routeEntity.getRouteId() + ",HTW Saar,Rathaus,122;124",
+                routeEntity2.getRouteId() + ",\"Saarbrücken, Hauptbahnhof\",HTW Saar,"), csv.lines().toList());
+        } finally {
+            routeRepository.deleteAll();
+            busRepository.deleteAll();
+        }
+    }
 }
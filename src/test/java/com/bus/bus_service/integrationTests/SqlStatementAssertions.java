@@ -0,0 +1,27 @@
+package com.bus.bus_service.integrationTests;
+
+import com.bus.bus_service.metrics.SqlStatementCounter;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts an upper bound on the SQL statements of an action, e.g. a MockMvc request. All statements prepared
+ * while the action runs are counted, including those of other threads, so the action must not run concurrently
+ * with other database work.
+ */
+public final class SqlStatementAssertions {
+
+    private SqlStatementAssertions() {
+    }
+
+    public static <T> T assertMaxStatements(long maxStatements, Callable<T> action) throws Exception {
+        long before = SqlStatementCounter.getTotalCount();
+        T result = action.call();
+        long statements = SqlStatementCounter.getTotalCount() - before;
+        assertTrue(statements <= maxStatements,
+            "Expected at most " + maxStatements + " SQL statements but " + statements + " were executed");
+        return result;
+    }
+}
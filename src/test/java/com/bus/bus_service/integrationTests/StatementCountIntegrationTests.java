@@ -0,0 +1,303 @@
+package com.bus.bus_service.integrationTests;
+
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.entities.RouteEntity;
+import com.bus.bus_service.graph.RouteNetworkIndex;
+import com.bus.bus_service.repository.BusRepository;
+import com.bus.bus_service.repository.RouteRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bus.bus_service.integrationTests.SqlStatementAssertions.assertMaxStatements;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Upper bounds for the SQL statements of every endpoint. The network has several routes with several buses each,
+ * so a lazy loading regression (one query per route or bus) exceeds the bounds.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StatementCountIntegrationTests {
+
+    private static final int ROUTES = 6;
+    private static final int BUSES_PER_ROUTE = 3;
+    // every write records its changes: the version increment, the version read and the (batched) change log insert,
+    // plus the change log id sequence, which is queried once every 50 ids and therefore depends on the earlier tests
+    private static final int CHANGE_LOG = 4;
+    // a saved bus also records the routes it belongs to, which are looked up in one more statement
+    private static final int BUS_CHANGE_LOG = CHANGE_LOG + 1;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private RouteRepository routeRepository;
+    @Autowired
+    private BusRepository busRepository;
+    @Autowired
+    private RouteNetworkIndex routeNetworkIndex;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<BusEntity> buses;
+    private List<RouteEntity> routes;
+
+    // the requests run in their own transactions like in production, so the data is committed and removed afterwards
+    @BeforeEach
+    void createNetwork() {
+        buses = new ArrayList<>();
+        for (int i = 0; i < ROUTES + BUSES_PER_ROUTE; i++) {
+            buses.add(new BusEntity(100 + i, "Harvey", 1f + i, 20f + i));
+        }
+        buses = busRepository.saveAll(buses);
+        routes = new ArrayList<>();
+        for (int i = 0; i < ROUTES; i++) {
+            routes.add(new RouteEntity(i % 2 == 0 ? "HTW Saar" : "Rathaus", "Station " + i,
+                new ArrayList<>(buses.subList(i, i + BUSES_PER_ROUTE))));
+        }
+        routes = routeRepository.saveAll(routes);
+        routeNetworkIndex.rebuild();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        routeRepository.deleteAll();
+        busRepository.deleteAll();
+        routeNetworkIndex.rebuild();
+    }
+
+    // the inserting endpoints may fetch the next block of ids from the sequence
+    @Test
+    void createBus() throws Exception {
+        assertMaxStatements(4 + BUS_CHANGE_LOG, () -> mockMvc.perform(post("/api/v1/bus")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"busNumber\": 1, \"name\": \"Tom\", \"kmPrice\": 3.5, \"averageSpeed\": 50.0}"))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void createBuses() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= 20; i++) {
+            json.append(i > 1 ? "," : "").append("{\"busNumber\": ").append(i)
+                .append(", \"name\": \"Tom\", \"kmPrice\": 3.5, \"averageSpeed\": 50.0}");
+        }
+        assertMaxStatements(4 + BUS_CHANGE_LOG, () -> mockMvc.perform(post("/api/v1/bus/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json.append("]").toString()))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void updateBus() throws Exception {
+        assertMaxStatements(4 + BUS_CHANGE_LOG, () -> mockMvc.perform(put("/api/v1/bus/" + buses.get(3).getBusId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"busNumber\": 103, \"name\": \"Tom\", \"kmPrice\": 3.5, \"averageSpeed\": 50.0}"))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void getChanges() throws Exception {
+        String response = assertMaxStatements(3, () -> mockMvc.perform(get("/api/v1/changes"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.routes", hasSize(ROUTES)))
+            .andReturn().getResponse().getContentAsString());
+        String token = objectMapper.readTree(response).get("token").asText();
+        mockMvc.perform(delete("/api/v1/route/" + routes.getFirst().getRouteId())).andExpect(status().isOk());
+        mockMvc.perform(put("/api/v1/route/add_bus/108/to_route/" + routes.get(1).getRouteId()))
+            .andExpect(status().isOk());
+
+        assertMaxStatements(3, () -> mockMvc.perform(get("/api/v1/changes").param("since", token))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.routes", hasSize(1)))
+            .andExpect(jsonPath("$.deletedRouteIds", hasSize(1))));
+    }
+
+    @Test
+    void deleteBus() throws Exception {
+        BusEntity unusedBus = busRepository.save(new BusEntity(1, "Tom", 3.5f, 50f));
+        assertMaxStatements(3 + CHANGE_LOG, () -> mockMvc.perform(delete("/api/v1/bus/" + unusedBus.getBusId()))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void getAllBusses() throws Exception {
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/bus"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(buses.size()))));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/bus?limit=5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(5))));
+    }
+
+    @Test
+    void createRoute() throws Exception {
+        assertMaxStatements(5 + CHANGE_LOG, () -> mockMvc.perform(post("/api/v1/route")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"start\": \"HTW Saar\", \"destination\": \"Rathaus\", \"busNumber\": [100, 101, 102, 103]}"))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void importRoutes() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            ndjson.append("{\"start\": \"HTW Saar\", \"destination\": \"Station ").append(i)
+                .append("\", \"busNumber\": [100, 101, 102]}\n");
+        }
+        assertMaxStatements(5 + CHANGE_LOG, () -> mockMvc.perform(post("/api/v1/route/import")
+                .contentType("application/x-ndjson").content(ndjson.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.importedRoutes").value(20)));
+    }
+
+    @Test
+    void routeWritesWithCachedBuses() throws Exception {
+        mockMvc.perform(post("/api/v1/route").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"start\": \"HTW Saar\", \"destination\": \"Rathaus\", \"busNumber\": [100, 101, 102, 108]}"))
+            .andExpect(status().isOk());
+        // the buses are resolved by the bus cache
+        assertMaxStatements(4 + CHANGE_LOG, () -> mockMvc.perform(post("/api/v1/route")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"start\": \"Rathaus\", \"destination\": \"HTW Saar\", \"busNumber\": [100, 101, 102]}"))
+            .andExpect(status().isOk()));
+        assertMaxStatements(4 + CHANGE_LOG, () -> mockMvc.perform(put("/api/v1/route/add_bus/108/to_route/"
+                + routes.getFirst().getRouteId()))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void cachedRouteQueries() throws Exception {
+        mockMvc.perform(get("/api/v1/route/from/HTW Saar?sort=true&criteria=price"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(3 * BUSES_PER_ROUTE)));
+        assertMaxStatements(0, () -> mockMvc.perform(get("/api/v1/route/from/HTW Saar?sort=true&criteria=price"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(3 * BUSES_PER_ROUTE))));
+
+        // a write starts a new network version, so the next request reads the changed routes
+        mockMvc.perform(put("/api/v1/route/add_bus/108/to_route/" + routes.getFirst().getRouteId()))
+            .andExpect(status().isOk());
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route/from/HTW Saar?sort=true&criteria=price"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(3 * BUSES_PER_ROUTE + 1))));
+    }
+
+    @Test
+    void updateRoute() throws Exception {
+        assertMaxStatements(6 + CHANGE_LOG, () -> mockMvc.perform(put("/api/v1/route/" + routes.getFirst().getRouteId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"start\": \"Rathaus\", \"destination\": \"HTW Saar\", \"busNumber\": [104, 105, 106]}"))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void addBusToRoute() throws Exception {
+        assertMaxStatements(5 + CHANGE_LOG, () -> mockMvc.perform(put("/api/v1/route/add_bus/108/to_route/"
+                + routes.getFirst().getRouteId()))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void removeBusFromRoute() throws Exception {
+        assertMaxStatements(5 + CHANGE_LOG, () -> mockMvc.perform(delete("/api/v1/route/remove_bus/100/from_route/"
+                + routes.getFirst().getRouteId()))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void deleteRoute() throws Exception {
+        assertMaxStatements(3 + CHANGE_LOG, () -> mockMvc.perform(
+                delete("/api/v1/route/" + routes.getFirst().getRouteId()))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void getAllRoutes() throws Exception {
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(ROUTES))));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route?filter=true&criteria=speed"))
+            .andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route?sort=true&criteria=price"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(ROUTES * BUSES_PER_ROUTE))));
+        assertMaxStatements(2, () -> mockMvc.perform(get("/api/v1/route?limit=4"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(4))));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route?sort=true&criteria=speed&limit=4"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(4))));
+        assertMaxStatements(3, () -> mockMvc.perform(get("/api/v1/route?filter=true&criteria=price&limit=4"))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void exportRoutes() throws Exception {
+        assertMaxStatements(1, () -> {
+            MvcResult result = mockMvc.perform(get("/api/v1/route/export")).andReturn();
+            return mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        });
+    }
+
+    @Test
+    void getRoutesFrom() throws Exception {
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route/from/HTW Saar"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(ROUTES / 2))));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route/from/HTW Saar?filter=true&criteria=price"))
+            .andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route/from/HTW Saar?sort=true&criteria=speed"))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void getRoutesTo() throws Exception {
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route/to/Station 1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1))));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route/to/Station 1?filter=true&criteria=speed"))
+            .andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route/to/Station 1?sort=true&criteria=price"))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void getRoutesFromTo() throws Exception {
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route/from/HTW Saar/to/Station 0"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1))));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route/from/HTW Saar/to/Station 0?filter=true"))
+            .andExpect(status().isOk()));
+        assertMaxStatements(1, () -> mockMvc.perform(get("/api/v1/route/from/HTW Saar/to/Station 0?sort=true"))
+            .andExpect(status().isOk()));
+    }
+
+    @Test
+    void getJourneys() throws Exception {
+        // journeys are planned on the in-memory index
+        assertMaxStatements(0, () -> mockMvc.perform(get("/api/v1/journey?from=HTW Saar&to=Station 0"))
+            .andExpect(status().isOk()));
+        assertMaxStatements(0, () -> mockMvc.perform(post("/api/v1/journey/matrix")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"stations\": [\"HTW Saar\", \"Rathaus\", \"Station 0\"]}"))
+            .andExpect(status().isOk()));
+    }
+}
@@ -0,0 +1,320 @@
+package com.bus.bus_service.loadtest;
+
+import com.bus.bus_service.BusServiceApplication;
+import com.bus.bus_service.graph.RouteNetworkIndex;
+import com.bus.bus_service.seed.NetworkGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test for the bus and route endpoints. It boots the application on a random port with an in-memory H2
+ * database, seeds a network with the {@link NetworkGenerator} and drives a weighted mix of requests from
+ * closed-loop virtual-thread clients.
+ * Latencies are recorded per endpoint in HdrHistograms; the report is printed and written to target/loadtest,
+ * together with the full percentile distribution of every endpoint (.hgrm).
+ *
+ * <p>Run with {@code mvn -Ploadtest test-compile exec:java}, configured by system properties:
+ * <ul>
+ *     <li>loadtest.clients - concurrent clients (default 64)</li>
+ *     <li>loadtest.warmup / loadtest.duration - seconds (default 10 / 30)</li>
+ *     <li>loadtest.stations, loadtest.buses, loadtest.routes - seed size (default 200 / 1000 / 5000)</li>
+ *     <li>loadtest.mix - endpoint weights, e.g. "route-from-sorted=50,bus-create=10" (default {@link #DEFAULT_MIX}),
+ *     or "routes" for the RouteController endpoints only ({@link #ROUTE_MIX})</li>
+ *     <li>loadtest.threads - request threads of the application: "platform", "virtual" or "both" (default platform).
+ *     "both" runs the load test against a fresh instance with platform threads and then one with virtual threads
+ *     and prints a comparison of the throughput and the tail latencies</li>
+ *     <li>loadtest.caches - whether the response cache and the route query cache are enabled (default true, false
+ *     for "both", so the comparison measures the requests which block on the database instead of cache hits)</li>
+ *     <li>loadtest.seed - random seed (default 42)</li>
+ * </ul>
+ *
+ * <p>Comparison of the route endpoints under 1000 clients:
+ * {@code mvn -Ploadtest test-compile exec:java -Dloadtest.threads=both -Dloadtest.clients=1000 -Dloadtest.mix=routes}
+ */
+public class LoadTestHarness {
+
+    static final String DEFAULT_MIX = "bus-list=10,route-list=10,route-from-sorted=25,route-from-to=25,"
+        + "bus-create=8,bus-update=7,bus-delete=5,route-create=5,route-delete=5";
+    static final String ROUTE_MIX = "route-list=15,route-from-sorted=35,route-from-to=35,route-create=8,route-delete=7";
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final int stations;
+    private final long[] seededBusIds;
+    private final Map<String, Integer> mix;
+    private final int totalWeight;
+
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+    private final AtomicInteger nextBusNumber;
+    private final ConcurrentLinkedQueue<Long> createdBusIds = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> createdRouteIds = new ConcurrentLinkedQueue<>();
+
+    LoadTestHarness(HttpClient httpClient, String baseUrl, int stations, long[] seededBusIds, Map<String, Integer> mix) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.stations = stations;
+        this.seededBusIds = seededBusIds;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.nextBusNumber = new AtomicInteger(seededBusIds.length + 1);
+        mix.keySet().forEach(endpoint -> {
+            recorders.put(endpoint, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(endpoint, new LongAdder());
+        });
+    }
+
+    record Summary(Histogram total, long errors) { }
+
+    public static void main(String[] args) throws Exception {
+        int duration = Integer.getInteger("loadtest.duration", 30);
+        String threads = System.getProperty("loadtest.threads", "platform");
+        List<String> modes = threads.equals("both") ? List.of("platform", "virtual") : List.of(threads);
+        boolean caches = Boolean.parseBoolean(System.getProperty("loadtest.caches", String.valueOf(modes.size() == 1)));
+        if (!List.of("platform", "virtual").containsAll(modes)) {
+            throw new IllegalArgumentException("Unknown loadtest.threads " + threads);
+        }
+        Map<String, Summary> summaries = new LinkedHashMap<>();
+        for (String mode : modes) {
+            summaries.put(mode, runAgainstNewInstance(mode, caches, args, duration));
+        }
+        if (summaries.size() > 1) {
+            compare(summaries, caches, duration);
+        }
+    }
+
+    // every mode gets a fresh instance with its own in-memory database, so the runs start from the same network
+    private static Summary runAgainstNewInstance(String threads, boolean caches, String[] args, int duration)
+        throws Exception {
+        int clients = Integer.getInteger("loadtest.clients", 64);
+        int warmup = Integer.getInteger("loadtest.warmup", 10);
+        int stations = Integer.getInteger("loadtest.stations", 200);
+        int buses = Integer.getInteger("loadtest.buses", 1000);
+        int routes = Integer.getInteger("loadtest.routes", 5000);
+        long seed = Long.getLong("loadtest.seed", 42);
+        String mixProperty = System.getProperty("loadtest.mix", DEFAULT_MIX);
+        Map<String, Integer> mix = parseMix(mixProperty.equals("routes") ? ROUTE_MIX : mixProperty);
+
+        // command line arguments take precedence over application.properties
+        List<String> applicationArgs = new ArrayList<>(List.of("--server.port=0", "--spring.jpa.show-sql=false",
+            "--logging.level.com.bus.bus_service=WARN", "--spring.threads.virtual.enabled=" + threads.equals("virtual")));
+        if (!caches) {
+            applicationArgs.addAll(List.of("--response.cache.maximum-bytes=0", "--route.cache.maximum-weight=0"));
+        }
+        applicationArgs.addAll(List.of(args));
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BusServiceApplication.class)
+                .run(applicationArgs.toArray(String[]::new));
+             ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient httpClient = HttpClient.newBuilder().executor(clientThreads).build()) {
+            long[] seededBusIds = seed(context, stations, buses, routes, seed);
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            LoadTestHarness loadTest = new LoadTestHarness(httpClient, "http://localhost:" + port, stations, seededBusIds, mix);
+            System.out.printf("Request threads: %s, caches %s%n", threads, caches ? "on" : "off");
+            return loadTest.run(clientThreads, clients, warmup, duration, Path.of("target", "loadtest", threads));
+        }
+    }
+
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            weights.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        return weights;
+    }
+
+    private static long[] seed(ConfigurableApplicationContext context, int stations, int buses, int routes, long seed) {
+        NetworkGenerator.SeededNetwork network = context.getBean(NetworkGenerator.class)
+            .seed(NetworkGenerator.Settings.of(seed, stations, routes, buses));
+        // the routes were written without change events
+        context.getBean(RouteNetworkIndex.class).rebuild();
+        return network.busIds().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    Summary run(ExecutorService clientThreads, int clients, int warmupSeconds, int durationSeconds, Path directory)
+        throws Exception {
+        System.out.printf("Load test: %d clients, %d s warmup, %d s measurement, mix %s%n",
+            clients, warmupSeconds, durationSeconds, mix);
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            futures.add(clientThreads.submit(() -> {
+                while (System.nanoTime() < end) {
+                    execute(pickEndpoint());
+                }
+                return null;
+            }));
+        }
+        // the warmup samples are discarded
+        Thread.sleep(Math.max(0, TimeUnit.NANOSECONDS.toMillis(warmupEnd - System.nanoTime())));
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(LongAdder::reset);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return report(directory, durationSeconds);
+    }
+
+    private String pickEndpoint() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private void execute(String endpoint) {
+        HttpRequest request = createRequest(endpoint);
+        if (request == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            recorders.get(endpoint).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            if (response.statusCode() >= 400) {
+                errors.get(endpoint).increment();
+            } else {
+                remember(endpoint, response.body());
+            }
+        } catch (IOException e) {
+            errors.get(endpoint).increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpRequest createRequest(String endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String start = NetworkGenerator.station(random.nextInt(stations));
+        String destination = NetworkGenerator.station(random.nextInt(stations));
+        return switch (endpoint) {
+            case "bus-list" -> get("/api/v1/bus?limit=100");
+            case "route-list" -> get("/api/v1/route?limit=100");
+            case "route-from-sorted" -> get("/api/v1/route/from/" + encode(start) + "?sort=true&criteria=price&limit=10");
+            case "route-from-to" -> get("/api/v1/route/from/" + encode(start) + "/to/" + encode(destination));
+            case "bus-create" -> send("POST", "/api/v1/bus", busJson(nextBusNumber.getAndIncrement(), random));
+            case "bus-update" -> {
+                // seeded bus i has the bus number i + 1 and is usually part of some routes
+                int index = random.nextInt(seededBusIds.length);
+                yield send("PUT", "/api/v1/bus/" + seededBusIds[index], busJson(index + 1, random));
+            }
+            case "bus-delete" -> {
+                Long busId = createdBusIds.poll();
+                yield busId == null ? null : send("DELETE", "/api/v1/bus/" + busId, null);
+            }
+            case "route-create" -> send("POST", "/api/v1/route", "{\"start\": \"" + start + "\", \"destination\": \""
+                + destination + "\", \"busNumber\": [" + (1 + random.nextInt(seededBusIds.length)) + "]}");
+            case "route-delete" -> {
+                Long routeId = createdRouteIds.poll();
+                yield routeId == null ? null : send("DELETE", "/api/v1/route/" + routeId, null);
+            }
+            default -> throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        };
+    }
+
+    private void remember(String endpoint, String body) throws IOException {
+        if (endpoint.equals("bus-create")) {
+            createdBusIds.add(objectMapper.readTree(body).get("busId").asLong());
+        } else if (endpoint.equals("route-create")) {
+            createdRouteIds.add(objectMapper.readTree(body).get("routeId").asLong());
+        }
+    }
+
+    private String busJson(int busNumber, Random random) {
+        return "{\"busNumber\": " + busNumber + ", \"name\": \"Load " + busNumber + "\", \"kmPrice\": "
+            + (1 + random.nextInt(400) / 100f) + ", \"averageSpeed\": " + (20 + random.nextInt(80)) + "}";
+    }
+
+    private static String encode(String value) {
+        return value.replace(" ", "%20");
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofMinutes(1)).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofMinutes(1))
+            .header("Content-Type", "application/json")
+            .method(method, json == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(json))
+            .build();
+    }
+
+    private Summary report(Path directory, int durationSeconds) throws IOException {
+        Files.createDirectories(directory);
+        StringBuilder report = new StringBuilder(String.format("%-18s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+            "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Histogram histogram = entry.getValue().getIntervalHistogram();
+            long endpointErrors = errors.get(entry.getKey()).sum();
+            total.add(histogram);
+            totalErrors += endpointErrors;
+            report.append(formatLine(entry.getKey(), histogram, endpointErrors, durationSeconds));
+            try (PrintStream out = new PrintStream(directory.resolve(entry.getKey() + ".hgrm").toFile())) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        report.append(formatLine("total", total, totalErrors, durationSeconds));
+        System.out.print(report);
+        Files.writeString(directory.resolve("report.txt"), report);
+        System.out.println("Latency distributions written to " + directory.toAbsolutePath());
+        return new Summary(total, totalErrors);
+    }
+
+    private static void compare(Map<String, Summary> summaries, boolean caches, int durationSeconds)
+        throws IOException {
+        StringBuilder comparison = new StringBuilder(String.format("Caches: %s%n", caches ? "on" : "off"));
+        comparison.append(String.format("%-18s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+            "threads", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        summaries.forEach((threads, summary) ->
+            comparison.append(formatLine(threads, summary.total(), summary.errors(), durationSeconds)));
+        System.out.print(comparison);
+        Files.writeString(Path.of("target", "loadtest", "comparison.txt"), comparison);
+    }
+
+    private static String formatLine(String endpoint, Histogram histogram, long errors, int durationSeconds) {
+        return String.format("%-18s %9d %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", endpoint,
+            histogram.getTotalCount(), histogram.getTotalCount() / (double) durationSeconds, errors,
+            histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+            histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+            histogram.getMaxValue() / 1000.0);
+    }
+}
@@ -4,18 +4,23 @@ import com.bus.bus_service.dto.BusMapper;
 import com.bus.bus_service.dto.BusMapperImpl;
 import com.bus.bus_service.entities.BusEntity;
 import com.bus.bus_service.entities.RouteEntity;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @Import(BusMapperImpl.class)
 public class RouteRepositoryTest {
 
@@ -28,6 +33,12 @@ public class RouteRepositoryTest {
     @Autowired
     BusMapper busMapper;
 
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
     @BeforeEach
     void setRepository() {
         //create bus
@@ -91,4 +102,49 @@ public class RouteRepositoryTest {
         List<RouteEntity> nonExistentRouteEntity = routeRepository.getRouteEntitiesByStartAndDestination("error", "error");
         assertTrue(nonExistentRouteEntity.isEmpty());
     }
+
+    @Test
+    void testListingStatementCountDoesNotGrowWithRouteCount() {
+        //one route from the setup, measure with 1, 10 and 50 routes
+        long statementsForOneRoute = countListingStatements(() -> routeRepository.findAll());
+        addRoutes(9);
+        long statementsForTenRoutes = countListingStatements(() -> routeRepository.findAll());
+        addRoutes(40);
+        long statementsForFiftyRoutes = countListingStatements(() -> routeRepository.findAll());
+
+        assertEquals(1, statementsForOneRoute);
+        assertEquals(statementsForOneRoute, statementsForTenRoutes);
+        assertEquals(statementsForOneRoute, statementsForFiftyRoutes);
+
+        //the same holds for the filtered listings
+        assertEquals(1, countListingStatements(() -> routeRepository.getRouteEntitiesByStart("start")));
+        assertEquals(1, countListingStatements(() -> routeRepository.getRouteEntitiesByDestination("destination")));
+        assertEquals(1, countListingStatements(
+            () -> routeRepository.getRouteEntitiesByStartAndDestination("start", "destination")));
+    }
+
+    private void addRoutes(int amount) {
+        for (int i = 0; i < amount; i++) {
+            BusEntity busEntity = new BusEntity(1000 + (int) busRepository.count(), "name", 10f, 20f);
+            busRepository.save(busEntity);
+            routeRepository.save(new RouteEntity("start", "destination", List.of(busEntity)));
+        }
+    }
+
+    /**
+     * Loads the routes from an empty persistence context, touches every bus list like the mapper does
+     * and returns the number of executed statements
+     */
+    private long countListingStatements(Supplier<List<RouteEntity>> listing) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<RouteEntity> routes = listing.get();
+        routes.forEach(route -> route.getBuses().forEach(BusEntity::getBusNumber));
+
+        assertFalse(routes.isEmpty());
+        return statistics.getPrepareStatementCount();
+    }
 }
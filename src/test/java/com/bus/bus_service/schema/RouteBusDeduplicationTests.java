@@ -0,0 +1,60 @@
+package com.bus.bus_service.schema;
+
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.entities.RouteEntity;
+import com.bus.bus_service.repository.BusRepository;
+import com.bus.bus_service.repository.RouteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(RouteBusDeduplication.class)
+// the cleanup uses its own connection, so the data has to be committed
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RouteBusDeduplicationTests {
+
+    @Autowired
+    RouteBusDeduplication routeBusDeduplication;
+
+    @Autowired
+    RouteRepository routeRepository;
+
+    @Autowired
+    BusRepository busRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testDuplicatesAreRemovedBeforeTheConstraintIsCreated() throws Exception {
+        BusEntity bus = busRepository.save(new BusEntity(122, "Harvey", 1.5f, 30f));
+        BusEntity otherBus = busRepository.save(new BusEntity(124, "Harvey", 4.1f, 70f));
+        RouteEntity route = routeRepository.save(new RouteEntity("HTW Saar", "Rathaus", List.of(bus, otherBus)));
+        try {
+            // a database from before the constraint, with a bus added twice to the route
+            jdbcTemplate.execute("alter table route_bus drop constraint uk_route_bus");
+            jdbcTemplate.update("insert into route_bus (route_id, bus_id) values (?, ?)", route.getRouteId(),
+                bus.getBusId());
+            jdbcTemplate.update("insert into route_bus (route_id, bus_id) values (?, ?)", route.getRouteId(),
+                bus.getBusId());
+
+            routeBusDeduplication.afterPropertiesSet();
+
+            assertEquals(List.of(bus.getBusId(), otherBus.getBusId()), jdbcTemplate.queryForList(
+                "select bus_id from route_bus where route_id = ? order by bus_id", Long.class, route.getRouteId()));
+        } finally {
+            jdbcTemplate.execute("alter table route_bus add constraint uk_route_bus unique (route_id, bus_id)");
+            routeRepository.deleteAll();
+            busRepository.deleteAll();
+        }
+    }
+}
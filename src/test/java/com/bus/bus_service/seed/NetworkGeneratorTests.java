@@ -0,0 +1,83 @@
+package com.bus.bus_service.seed;
+
+import com.bus.bus_service.entities.BusEntity;
+import com.bus.bus_service.entities.RouteEntity;
+import com.bus.bus_service.repository.BusRepository;
+import com.bus.bus_service.repository.RouteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(NetworkGenerator.class)
+public class NetworkGeneratorTests {
+    @Autowired
+    NetworkGenerator networkGenerator;
+    @Autowired
+    RouteRepository routeRepository;
+    @Autowired
+    BusRepository busRepository;
+
+    @Test
+    void testGenerateIsDeterministic() {
+        NetworkGenerator.Settings settings = NetworkGenerator.Settings.of(7, 50, 500, 40);
+        NetworkGenerator.GeneratedNetwork network = NetworkGenerator.generate(settings);
+        NetworkGenerator.GeneratedNetwork sameNetwork = NetworkGenerator.generate(settings);
+
+        assertEquals(50, network.stations().size());
+        assertEquals(40, network.buses().size());
+        assertEquals(500, network.routes().size());
+        assertEquals(describe(network.routes()), describe(sameNetwork.routes()));
+        assertNotEquals(describe(network.routes()),
+            describe(NetworkGenerator.generate(NetworkGenerator.Settings.of(8, 50, 500, 40)).routes()));
+        for (RouteEntity route : network.routes()) {
+            assertNotEquals(route.getStart(), route.getDestination());
+            assertTrue(route.getBuses().size() >= 1 && route.getBuses().size() <= 3);
+            assertEquals(route.getBuses().size(), route.getBuses().stream().distinct().count());
+        }
+        for (BusEntity bus : network.buses()) {
+            assertTrue(bus.getKmPrice() >= 1 && bus.getKmPrice() <= 5);
+            assertTrue(bus.getAverageSpeed() >= 20 && bus.getAverageSpeed() <= 100);
+        }
+    }
+
+    @Test
+    void testPowerLawDistributionHasHubs() {
+        List<RouteEntity> routes = NetworkGenerator.generate(NetworkGenerator.Settings.of(7, 100, 5000, 10)).routes();
+        Map<String, Integer> starts = new HashMap<>();
+        routes.forEach(route -> starts.merge(route.getStart(), 1, Integer::sum));
+        // with a skew of 1 the first station starts about 19% of the routes, the last one about 0.2%
+        assertTrue(starts.get(NetworkGenerator.station(0)) > 10 * starts.getOrDefault(NetworkGenerator.station(99), 1));
+    }
+
+    @Test
+    void testSeedWritesGeneratedNetwork() {
+        NetworkGenerator.Settings settings = NetworkGenerator.Settings.of(7, 50, 2500, 1200);
+        NetworkGenerator.SeededNetwork seeded = networkGenerator.seed(settings);
+
+        assertEquals(1200, busRepository.count());
+        assertEquals(2500, routeRepository.count());
+        assertEquals(1200, seeded.busIds().size());
+
+        // the database contains the same routes as the in-memory network
+        List<RouteEntity> generated = NetworkGenerator.generate(settings).routes();
+        List<RouteEntity> saved = routeRepository.findAll().stream()
+            .sorted((a, b) -> Long.compare(a.getRouteId(), b.getRouteId())).toList();
+        assertEquals(describe(generated), describe(saved));
+    }
+
+    // the route_bus rows have no order column, so the buses of a route are compared by bus number
+    private static List<String> describe(List<RouteEntity> routes) {
+        return routes.stream().map(route -> route.getStart() + ">" + route.getDestination() + ":"
+            + route.getBuses().stream().sorted(Comparator.comparing(BusEntity::getBusNumber))
+                .map(bus -> bus.getBusNumber() + "/" + bus.getKmPrice()).toList()).toList();
+    }
+}
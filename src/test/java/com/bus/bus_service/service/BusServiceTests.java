@@ -1,5 +1,6 @@
 package com.bus.bus_service.service;
 
+import com.bus.bus_service.cache.BusCache;
 import com.bus.bus_service.entities.BusEntity;
 import com.bus.bus_service.exceptions.BusNotExistsException;
 import com.bus.bus_service.exceptions.BusNumberAlreadyExistsException;
@@ -11,13 +12,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Import;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
-@Import(BusService.class)
+@Import({BusService.class, BusCache.class})
 public class BusServiceTests {
     @Autowired
     BusRepository busRepository;
+
     @Autowired
     BusService busService;
     BusEntity busEntity;
@@ -115,4 +121,54 @@ public class BusServiceTests {
         //try to get existing bus
         assertTrue(busService.getBusByBusNumber(100).isPresent());
     }
+
+    @Test
+    void testBusLookupsAreCachedAndEvicted() {
+        busService.createBus(busEntity);
+        Long busId = busEntity.getBusId();
+        assertEquals("name", busService.getBusByBusNumber(100).orElseThrow().getName());
+        assertEquals("name", busService.getBusById(busId).orElseThrow().getName());
+
+        //changes made without the BusService are not visible until the entries are evicted
+        busRepository.findById(busId).orElseThrow().setName("changed");
+        busRepository.flush();
+        assertEquals("name", busService.getBusByBusNumber(100).orElseThrow().getName());
+
+        //an update evicts the old and the new bus number
+        busService.updateBus(busId, new BusEntity(101, "updated", 10f, 20f));
+        assertThrows(BusNumberNotFoundException.class, () -> busService.getBusByBusNumber(100));
+        assertEquals("updated", busService.getBusByBusNumber(101).orElseThrow().getName());
+        assertEquals(101, busService.getBusById(busId).orElseThrow().getBusNumber());
+
+        busService.deleteBusById(busId);
+        assertTrue(busService.getBusById(busId).isEmpty());
+        assertThrows(BusNumberNotFoundException.class, () -> busService.getBusByBusNumber(101));
+    }
+
+    @Test
+    void testCreateBuses() {
+        //save bus with number 100
+        busRepository.save(busEntity);
+
+        //more buses than one jdbc batch, one existing number and one number used twice
+        List<BusEntity> buses = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            buses.add(new BusEntity(1000 + i, "name", 10f, 20f));
+        }
+        buses.add(new BusEntity(100, "existing", 10f, 20f));
+        buses.add(new BusEntity(1000, "repeated", 10f, 20f));
+
+        List<Optional<BusEntity>> results = busService.createBuses(buses);
+
+        //one result per bus in the same order
+        assertEquals(122, results.size());
+        assertTrue(results.subList(0, 120).stream().allMatch(Optional::isPresent));
+        assertTrue(results.get(120).isEmpty());
+        assertTrue(results.get(121).isEmpty());
+        assertNotNull(results.getFirst().get().getBusId());
+
+        //check if the buses are saved
+        assertEquals(121, busRepository.count());
+        assertEquals("name", busRepository.findBusEntityByBusNumber(1000).orElseThrow().getName());
+    }
 }
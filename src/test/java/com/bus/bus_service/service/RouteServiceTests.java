@@ -1,5 +1,8 @@
 package com.bus.bus_service.service;
 
+import com.bus.bus_service.cache.BusCache;
+import com.bus.bus_service.dto.Bus;
+import com.bus.bus_service.dto.Route;
 import com.bus.bus_service.entities.BusEntity;
 import com.bus.bus_service.entities.RouteEntity;
 import com.bus.bus_service.exceptions.BusNumbersNotExistsException;
@@ -10,6 +13,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Import;
 
 import java.util.ArrayList;
@@ -19,7 +23,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
-@Import({RouteService.class, BusService.class})
+@Import({RouteService.class, BusService.class, BusCache.class})
 public class RouteServiceTests {
 
     @Autowired
@@ -31,6 +35,12 @@ public class RouteServiceTests {
     @Autowired
     BusRepository busRepository;
 
+    @Autowired
+    BusCache busCache;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
     RouteEntity routeEntity;
 
     Long entityID;
@@ -180,4 +190,105 @@ public class RouteServiceTests {
         result = routeService.sortRoutes("price", routes);
         assertEquals(route1.getRouteId(), result.getFirst().getRouteId());
     }
+
+    @Test
+    void testGetFilteredRoutes() {
+        //create buses, the setup bus costs 10 and drives 20
+        BusEntity cheapBus = new BusEntity(101, "name", 5f, 10f);
+        BusEntity fastBus = new BusEntity(102, "name", 20f, 50f);
+        busRepository.save(cheapBus);
+        busRepository.save(fastBus);
+
+        //create routes
+        routeService.createRoute(new RouteEntity("start", "other", new ArrayList<>(List.of(cheapBus, fastBus))));
+        routeService.createRoute(new RouteEntity("other", "destination", new ArrayList<>(List.of(fastBus))));
+
+        //cheapest bus over all routes
+        List<Route> result = routeService.getFilteredRoutes("price", null, null);
+        assertEquals(1, result.size());
+        assertEquals("other", result.getFirst().destination());
+        assertEquals(1, result.getFirst().buses().size());
+        assertEquals(101, result.getFirst().buses().getFirst().busNumber());
+
+        //fastest bus of the routes leading to "destination"
+        result = routeService.getFilteredRoutes("speed", null, "destination");
+        assertEquals(1, result.size());
+        assertEquals("other", result.getFirst().start());
+        assertEquals(102, result.getFirst().buses().getFirst().busNumber());
+
+        //cheapest bus of the routes from "start" to "destination"
+        result = routeService.getFilteredRoutes("price", "start", "destination");
+        assertEquals(1, result.size());
+        assertEquals(100, result.getFirst().buses().getFirst().busNumber());
+
+        //no matching routes and unknown criteria
+        assertTrue(routeService.getFilteredRoutes("price", "error", null).isEmpty());
+        assertTrue(routeService.getFilteredRoutes("error", null, null).isEmpty());
+
+        //the filtered routes are plain DTOs, the stored routes keep all of their buses
+        assertEquals(2, routeRepository.getRouteEntitiesByDestination("other").getFirst().getBuses().size());
+    }
+
+    @Test
+    void testGetFilteredRoutesMatchesInMemoryFilter() {
+        BusEntity bus1 = new BusEntity(101, "name", 10f, 20f);
+        BusEntity bus2 = new BusEntity(102, "name", 30f, 5f);
+        busRepository.save(bus1);
+        busRepository.save(bus2);
+        routeService.createRoute(new RouteEntity("start", "other", new ArrayList<>(List.of(bus1, bus2))));
+
+        RouteService inMemoryRouteService = new RouteService(routeRepository, busCache, eventPublisher, false);
+        for (String criteria : List.of("price", "speed")) {
+            List<Route> expected = inMemoryRouteService.getFilteredRoutes(criteria, "start", null);
+            List<Route> actual = routeService.getFilteredRoutes(criteria, "start", null);
+            assertEquals(expected.stream().map(Route::routeId).toList(),
+                actual.stream().map(Route::routeId).toList());
+            assertEquals(expected.stream().flatMap(route -> route.buses().stream()).map(Bus::busId).toList(),
+                actual.stream().flatMap(route -> route.buses().stream()).map(Bus::busId).toList());
+        }
+    }
+
+    @Test
+    void testGetSortedRoutes() {
+        //create buses, the setup bus costs 10 and drives 20
+        BusEntity bus1 = new BusEntity(101, "name", 5f, 10f);
+        BusEntity bus2 = new BusEntity(102, "name", 20f, 50f);
+        busRepository.save(bus1);
+        busRepository.save(bus2);
+        routeService.createRoute(new RouteEntity("start", "other", new ArrayList<>(List.of(bus1, bus2))));
+
+        //every (route, bus) combination ordered by price
+        List<Route> result = routeService.getSortedRoutes("price", null, null, null);
+        assertEquals(List.of(5f, 10f, 20f),
+            result.stream().map(route -> route.buses().getFirst().kmPrice()).toList());
+        assertTrue(result.stream().allMatch(route -> route.buses().size() == 1));
+
+        //the two fastest combinations from "start"
+        result = routeService.getSortedRoutes("speed", "start", null, 2);
+        assertEquals(List.of(50f, 20f),
+            result.stream().map(route -> route.buses().getFirst().averageSpeed()).toList());
+
+        //the cheapest combination from "start" to "destination"
+        result = routeService.getSortedRoutes("price", "start", "destination", 1);
+        assertEquals(1, result.size());
+        assertEquals(entityID, result.getFirst().routeId());
+
+        //unknown criteria returns the routes unsorted
+        assertEquals(2, routeService.getSortedRoutes("error", null, null, null).size());
+    }
+
+    @Test
+    void testBuildRouteKeepsBusOrderAndReportsMissingNumbers() {
+        busRepository.save(new BusEntity(101, "name", 5f, 10f));
+        busRepository.save(new BusEntity(102, "name", 20f, 50f));
+
+        //the buses keep the order of the requested bus numbers
+        RouteEntity route = routeService.buildRoute(List.of(102, 100, 101), "start", "destination").orElseThrow();
+        assertEquals(List.of(102, 100, 101), route.getBuses().stream().map(BusEntity::getBusNumber).toList());
+
+        //all missing numbers are reported
+        BusNumbersNotExistsException exception = assertThrows(BusNumbersNotExistsException.class,
+            () -> routeService.buildRoute(List.of(41, 101, 12), "start", "destination"));
+        assertEquals(List.of(41, 12), exception.getMissingNumbers());
+    }
 }